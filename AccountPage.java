@@ -13,21 +13,19 @@ import java.util.List;
 import java.util.Map;
 
 @SuppressWarnings("serial")
-public class AccountPage extends JFrame {
+public class AccountPage extends JPanel implements StorePage {
 
+    private final StoreWindow window;
     private final String username;
     private JLabel currentAddressLabel;
     private JPanel orderHistoryContentPanel;
     private final DecimalFormat df = new DecimalFormat("₹#,##0.00");
     private final String adminUsername = ""; // Unused but kept as it was in the original code
 
-    public AccountPage(String username) {
-        super("KAYRA Saree House - My Account");
-        this.username = username;
-        // Removed redundant setTitle and JFrame setup as BaseFrame handles it
-        // Note: Keeping setExtendedState here as it might override BaseFrame's setting
-        setExtendedState(JFrame.MAXIMIZED_BOTH); 
-        getContentPane().setBackground(new Color(245, 245, 245));
+    public AccountPage(StoreWindow window) {
+        this.window = window;
+        this.username = window.getUsername();
+        setBackground(new Color(245, 245, 245));
         setLayout(new BorderLayout());
 
         add(createTopBar(), BorderLayout.NORTH);
@@ -41,10 +39,20 @@ public class AccountPage extends JFrame {
         
         add(mainPanel, BorderLayout.CENTER);
 
+        window.takeOrdersStale(); // The first load below is already current
         loadUserData();
         displayOrderHistory();
+    }
+
+    @Override
+    public String getPageTitle() { return "KAYRA Saree House - My Account"; }
 
-        setVisible(true);
+    /** Reloads the order history only if an order was placed since it was last shown. */
+    @Override
+    public void onPageShown() {
+        if (window.takeOrdersStale()) {
+            displayOrderHistory();
+        }
     }
     
     // --- UI Creation Methods (Same as before) ---
@@ -65,12 +73,7 @@ public class AccountPage extends JFrame {
         backBtn.setBackground(new Color(200, 200, 200));
         backBtn.setForeground(Color.BLACK);
         backBtn.setFocusPainted(false);
-        backBtn.addActionListener(e -> {
-            // Assuming your home page class is named homePage
-            // This is safe because homePage takes the username, not adminUsername.
-            new homePage(username); 
-            dispose();
-        });
+        backBtn.addActionListener(e -> window.back());
 
         topBar.add(backBtn, BorderLayout.EAST);
         return topBar;
@@ -141,66 +144,97 @@ public class AccountPage extends JFrame {
     // --- Data Loading Methods (Same as before) ---
 
     private void loadUserData() {
-        // ... (Code for loadUserData remains the same) ...
         String sql = "SELECT address FROM users WHERE username = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, username);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                String address = rs.getString("address");
-                currentAddressLabel.setText("Address: " + (address == null || address.isEmpty() ? "Not Set" : address));
-            }
-
-        } catch (SQLException ex) {
-            currentAddressLabel.setText("Address: Database Error");
-            System.err.println("Error loading user data: " + ex.getMessage());
-        }
+        AsyncDataAccess.onEdt(AsyncDataAccess.supply(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, username);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (!rs.next()) {
+                            return null; // No such user - leave the label as it is
+                        }
+                        String address = rs.getString("address");
+                        return address == null ? "" : address;
+                    }
+                }
+            }),
+            address -> {
+                if (address != null) {
+                    currentAddressLabel.setText("Address: " + (address.isEmpty() ? "Not Set" : address));
+                }
+            },
+            error -> {
+                currentAddressLabel.setText("Address: Database Error");
+                System.err.println("Error loading user data: " + error.getMessage());
+            });
     }
     
     public void displayOrderHistory() {
-        // ... (Code for displayOrderHistory remains the same) ...
         orderHistoryContentPanel.removeAll();
         orderHistoryContentPanel.setLayout(new BoxLayout(orderHistoryContentPanel, BoxLayout.Y_AXIS));
 
-        Map<Integer, Boolean> feedbackStatusMap = checkExistingFeedback(); 
+        JLabel loadingLabel = new JLabel("Loading your orders...", SwingConstants.CENTER);
+        loadingLabel.setFont(new Font("Arial", Font.ITALIC, 16));
+        loadingLabel.setBorder(new EmptyBorder(30, 0, 30, 0));
+        orderHistoryContentPanel.add(loadingLabel);
+        orderHistoryContentPanel.revalidate();
+        orderHistoryContentPanel.repaint();
+
+        AsyncDataAccess.onEdt(AsyncDataAccess.supply(this::queryOrderHistory),
+            this::renderOrderHistory,
+            error -> {
+                orderHistoryContentPanel.removeAll();
+                orderHistoryContentPanel.revalidate();
+                orderHistoryContentPanel.repaint();
+                JOptionPane.showMessageDialog(this, "Error loading order history: " + error.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+                error.printStackTrace();
+            });
+    }
+
+    /** Runs on a background thread; everything for the history panel is read over one connection. */
+    private List<OrderRow> queryOrderHistory(Connection conn) throws SQLException {
+        Map<Integer, Boolean> feedbackStatusMap = checkExistingFeedback(conn); 
 
         String sql = "SELECT order_id, order_date, total_amount, status FROM orders WHERE username = ? ORDER BY order_id DESC";
-        
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, username);
-            ResultSet rs = pstmt.executeQuery();
+        List<OrderRow> orders = new ArrayList<>();
 
-            boolean ordersFound = false;
-            
-            while (rs.next()) {
-                ordersFound = true;
-                int orderId = rs.getInt("order_id");
-                String date = rs.getString("order_date");
-                double total = rs.getDouble("total_amount");
-                String status = rs.getString("status");
-                
-                boolean hasFeedback = feedbackStatusMap.getOrDefault(orderId, false);
-
-                JPanel orderRow = createOrderRow(orderId, date, total, status, hasFeedback);
-                orderHistoryContentPanel.add(orderRow);
-                orderHistoryContentPanel.add(Box.createVerticalStrut(15)); 
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, username);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int orderId = rs.getInt("order_id");
+                    orders.add(new OrderRow(
+                        orderId,
+                        rs.getString("order_date"),
+                        rs.getDouble("total_amount"),
+                        rs.getString("status"),
+                        feedbackStatusMap.getOrDefault(orderId, false)
+                    ));
+                }
             }
+        }
 
-            if (!ordersFound) {
-                JLabel noOrdersLabel = new JLabel("You have no past orders.", SwingConstants.CENTER);
-                noOrdersLabel.setFont(new Font("Arial", Font.ITALIC, 16));
-                noOrdersLabel.setBorder(new EmptyBorder(30, 0, 30, 0));
-                orderHistoryContentPanel.add(noOrdersLabel);
-            }
+        for (OrderRow order : orders) {
+            order.itemSummary = getOrderSummary(conn, order.orderId);
+        }
+        return orders;
+    }
 
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error loading order history: " + ex.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
+    /** Runs on the EDT once the history has been read. */
+    private void renderOrderHistory(List<OrderRow> orders) {
+        orderHistoryContentPanel.removeAll();
+
+        for (OrderRow order : orders) {
+            JPanel orderRow = createOrderRow(order.orderId, order.date, order.total, order.status,
+                order.hasFeedback, order.itemSummary);
+            orderHistoryContentPanel.add(orderRow);
+            orderHistoryContentPanel.add(Box.createVerticalStrut(15)); 
+        }
+
+        if (orders.isEmpty()) {
+            JLabel noOrdersLabel = new JLabel("You have no past orders.", SwingConstants.CENTER);
+            noOrdersLabel.setFont(new Font("Arial", Font.ITALIC, 16));
+            noOrdersLabel.setBorder(new EmptyBorder(30, 0, 30, 0));
+            orderHistoryContentPanel.add(noOrdersLabel);
         }
         
         orderHistoryContentPanel.revalidate();
@@ -211,7 +245,8 @@ public class AccountPage extends JFrame {
     /**
      * Creates a single JPanel row for an order, including the Feedback button logic.
      */
-    private JPanel createOrderRow(int orderId, String date, double total, String status, boolean hasFeedback) {
+    private JPanel createOrderRow(int orderId, String date, double total, String status, boolean hasFeedback,
+                                  String itemSummary) {
         JPanel row = new JPanel(new BorderLayout(20, 0));
         row.setBackground(new Color(250, 250, 250));
         row.setBorder(BorderFactory.createCompoundBorder(
@@ -234,7 +269,7 @@ public class AccountPage extends JFrame {
         centerPanel.setBackground(new Color(250, 250, 250));
         
         // Items Label is now fetching the actual item names!
-        JLabel itemsLabel = new JLabel("Items: " + getOrderSummary(orderId)); 
+        JLabel itemsLabel = new JLabel("Items: " + itemSummary); 
         
         // Status Label styling
         JLabel statusLabel = new JLabel("Status: " + status);
@@ -268,21 +303,23 @@ public class AccountPage extends JFrame {
                 feedbackBtn.setForeground(Color.WHITE);
                 feedbackBtn.setFocusPainted(false);
                 feedbackBtn.addActionListener(e -> {
+                    feedbackBtn.setEnabled(false);
                     // Fetch the list of items to pass to the FeedbackPage
-                    Map<Integer, String> items = getOrderItemsForFeedback(orderId);
-                    
-                    if (items.isEmpty()) {
-                         JOptionPane.showMessageDialog(this, 
-                             "Error: No items found in Order #" + orderId + ". Cannot leave feedback.", 
-                             "Data Missing", JOptionPane.ERROR_MESSAGE);
-                        return;
-                    }
-                    
-                    // Launch the FeedbackPage, passing the map of items for review
-                    new FeedbackPage(username, orderId, items, this); 
-                    // You might want to keep the account page open or refresh it,
-                    // but following your original dispose logic:
-                    dispose(); 
+                    AsyncDataAccess.onEdt(AsyncDataAccess.supply(conn -> getOrderItemsForFeedback(conn, orderId)),
+                        items -> {
+                            feedbackBtn.setEnabled(true);
+                            if (items.isEmpty()) {
+                                 JOptionPane.showMessageDialog(this, 
+                                     "Error: No items found in Order #" + orderId + ". Cannot leave feedback.", 
+                                     "Data Missing", JOptionPane.ERROR_MESSAGE);
+                                return;
+                            }
+                            
+                            // Launch the FeedbackPage, passing the map of items for review;
+                            // the account page stays in the store window and refreshes on submit
+                            new FeedbackPage(username, orderId, items, this); 
+                        },
+                        error -> feedbackBtn.setEnabled(true));
                 });
                 rightPanel.add(feedbackBtn);
             } else {
@@ -300,14 +337,13 @@ public class AccountPage extends JFrame {
     /**
      * Retrieves a summary of items in the order from the OrderItems table. (This already works)
      */
-   private String getOrderSummary(int orderId) {
+   private String getOrderSummary(Connection conn, int orderId) {
         // SQL query now selects oi.product_id
         String itemSql = "SELECT oi.quantity, oi.product_id, p.name FROM orderitems oi " +
                          "JOIN products p ON oi.product_id = p.product_id " +
                          "WHERE oi.order_id = ?";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(itemSql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(itemSql)) {
             
             pstmt.setInt(1, orderId);
             ResultSet rs = pstmt.executeQuery();
@@ -336,7 +372,7 @@ public class AccountPage extends JFrame {
      * Retrieves the Product ID and Name for all items in an order. 
      * This is passed to the FeedbackPage to let the user select/confirm which item to review.
      */
-    private Map<Integer, String> getOrderItemsForFeedback(int orderId) {
+    private Map<Integer, String> getOrderItemsForFeedback(Connection conn, int orderId) {
         Map<Integer, String> items = new HashMap<>();
         // Query to get the product ID and name for all items in the order
         String sql = "SELECT oi.product_id, p.name " +
@@ -344,8 +380,7 @@ public class AccountPage extends JFrame {
                      "JOIN products p ON oi.product_id = p.product_id " +
                      "WHERE oi.order_id = ?";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, orderId);
             ResultSet rs = pstmt.executeQuery();
@@ -364,15 +399,14 @@ public class AccountPage extends JFrame {
     /**
      * Checks the Feedback table to see which orders the user has already reviewed.
      */
-    private Map<Integer, Boolean> checkExistingFeedback() {
+    private Map<Integer, Boolean> checkExistingFeedback(Connection conn) {
         // ... (Code for checkExistingFeedback remains the same) ...
         Map<Integer, Boolean> status = new HashMap<>();
         // NOTE: This assumes your Feedback table links a review to an ORDER_ID.
         // If you change the Feedback table to link to PRODUCT_ID, you'll need to update this query.
         String sql = "SELECT order_id FROM feedback WHERE username = ?";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, username);
             ResultSet rs = pstmt.executeQuery();
@@ -385,4 +419,22 @@ public class AccountPage extends JFrame {
         }
         return status;
     }
+
+    // Plain row holder so the history query can run off the EDT
+    private static class OrderRow {
+        final int orderId;
+        final String date;
+        final double total;
+        final String status;
+        final boolean hasFeedback;
+        String itemSummary;
+
+        OrderRow(int orderId, String date, double total, String status, boolean hasFeedback) {
+            this.orderId = orderId;
+            this.date = date;
+            this.total = total;
+            this.status = status;
+            this.hasFeedback = hasFeedback;
+        }
+    }
 }
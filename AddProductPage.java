@@ -1,9 +1,9 @@
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
-import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.sql.ResultSet;
+import java.sql.Statement;
 
 @SuppressWarnings("serial")
 public class AddProductPage extends JFrame {
@@ -167,42 +167,51 @@ public class AddProductPage extends JFrame {
             double price = Double.parseDouble(priceText);
             int stock = Integer.parseInt(stockText);
             
-            String sql = "INSERT INTO Products (name, description, price, category, image_path, stock_quantity) " +
-                          "VALUES (?, ?, ?, ?, ?, ?)";
+            String sql = "INSERT INTO Products (name, description, price, category, image_path, stock_quantity, thumbnail_key) " +
+                          "VALUES (?, ?, ?, ?, ?, ?, ?)";
             
-            try (Connection conn = DBConnection.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                
-                pstmt.setString(1, name);
-                pstmt.setString(2, details);
-                pstmt.setDouble(3, price);
-                pstmt.setString(4, category);
-                pstmt.setString(5, imagePath);
-                pstmt.setInt(6, stock);
-                
-                int rowsAffected = pstmt.executeUpdate();
-                
-                if (rowsAffected > 0) {
-                    JOptionPane.showMessageDialog(this, "Product '" + name + "' added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    
-                    // ⭐️ NEW: Refresh the main product list after successful addition ⭐️
-                    if (manageProductsPage != null) {
-                        manageProductsPage.loadProducts();
+            AsyncDataAccess.onEdt(AsyncDataAccess.supply(conn -> {
+                    // Resize once here so shoppers' clients never scale the full photo
+                    String thumbnailKey = ThumbnailStore.generateOrNull(imagePath);
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                        pstmt.setString(1, name);
+                        pstmt.setString(2, details);
+                        pstmt.setDouble(3, price);
+                        pstmt.setString(4, category);
+                        pstmt.setString(5, imagePath);
+                        pstmt.setInt(6, stock);
+                        pstmt.setString(7, thumbnailKey);
+                        int rows = pstmt.executeUpdate();
+                        try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                            if (keys.next()) {
+                                CatalogCache.productChanged(conn, keys.getInt(1));
+                            }
+                        }
+                        return rows;
                     }
-                    
-                    // Clear fields after success
-                    nameField.setText("");
-                    detailsArea.setText("");
-                    priceField.setText("");
-                    stockField.setText("");
-                    imagePathField.setText("");
-                    categoryComboBox.setSelectedIndex(0);
-                }
-                
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(this, "Database Error adding product: " + ex.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
-                ex.printStackTrace();
-            }
+                }),
+                rowsAffected -> {
+                    if (rowsAffected > 0) {
+                        JOptionPane.showMessageDialog(this, "Product '" + name + "' added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                        
+                        // ⭐️ NEW: Refresh the main product list after successful addition ⭐️
+                        if (manageProductsPage != null) {
+                            manageProductsPage.loadProducts();
+                        }
+                        
+                        // Clear fields after success
+                        nameField.setText("");
+                        detailsArea.setText("");
+                        priceField.setText("");
+                        stockField.setText("");
+                        imagePathField.setText("");
+                        categoryComboBox.setSelectedIndex(0);
+                    }
+                },
+                error -> {
+                    JOptionPane.showMessageDialog(this, "Database Error adding product: " + error.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+                    error.printStackTrace();
+                });
             
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Price and Stock Quantity must be valid numbers.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
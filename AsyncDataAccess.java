@@ -0,0 +1,103 @@
+import javax.swing.SwingUtilities;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs JDBC work off the Swing Event Dispatch Thread and hands results back to it.
+ *
+ * Typical use from a page:
+ * <pre>
+ *   AsyncDataAccess.onEdt(AsyncDataAccess.supply(conn -&gt; queryRows(conn)),
+ *       rows -&gt; render(rows),
+ *       err  -&gt; showError(err));
+ * </pre>
+ */
+public class AsyncDataAccess {
+
+    /** A unit of JDBC work that runs on a pooled connection. */
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    /** A unit of JDBC work that manages its own connection(s). */
+    @FunctionalInterface
+    public interface SqlTask<T> {
+        T call() throws SQLException;
+    }
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    /** Borrows a connection on a background thread, runs the work and returns the connection. */
+    public static <T> CompletableFuture<T> supply(SqlWork<T> work) {
+        return call(() -> {
+            try (Connection conn = DBConnection.getConnection()) {
+                return work.run(conn);
+            }
+        });
+    }
+
+    /** Runs the task on a background thread. */
+    public static <T> CompletableFuture<T> call(SqlTask<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (SQLException ex) {
+                throw new CompletionException(ex);
+            }
+        }, EXECUTOR);
+    }
+
+    /**
+     * Delivers the outcome of a future on the EDT. The error handler receives the
+     * underlying cause (e.g. the SQLException), not the CompletionException wrapper.
+     */
+    public static <T> void onEdt(CompletableFuture<T> future, Consumer<? super T> onSuccess,
+                                 Consumer<? super Throwable> onError) {
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                onError.accept(unwrap(error));
+            }
+        }));
+    }
+
+    public static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /** The shared executor, for callers that need to chain their own stages. */
+    public static ExecutorService executor() {
+        return EXECUTOR;
+    }
+
+    /**
+     * Uses virtual threads when the runtime has them (JDK 21+); otherwise a cached pool of
+     * daemon threads. Either way concurrency against MySQL is bounded by the connection pool.
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException ignored) {
+            // Older JDK - fall through to platform threads
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "data-access-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
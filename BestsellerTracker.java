@@ -0,0 +1,286 @@
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Units sold per product over a sliding window of the last {@link #WINDOW_DAYS} days, for the
+ * "Bestsellers" rows on the home page.
+ *
+ * Sales are kept in one bucket per day (a ring indexed by day) plus a running total. A new
+ * order adds to today's bucket and the total; when the day changes, buckets that fell out of
+ * the window are subtracted from the total and cleared. The database is read once, to seed
+ * the buckets; after that committed orders are added by {@link #orderPlaced}. Orders placed
+ * while the seed query runs are held and replayed if the query did not see them.
+ *
+ * The top products of each category are recomputed only after a change and then served from
+ * a cached map, so drawing the shelves costs a map lookup.
+ */
+public class BestsellerTracker {
+
+    public static final int WINDOW_DAYS = 7;
+
+    private static volatile BestsellerTracker instance;
+    private static CompletableFuture<BestsellerTracker> loading; // guarded by BestsellerTracker.class
+    // Orders committed while the tracker is being seeded, by order id; guarded by BestsellerTracker.class
+    private static Map<Integer, PendingOrder> pending;
+
+    // --- Day buckets: bucket i holds sales of day bucketDay[i] ---
+    private final long[] bucketDay = new long[WINDOW_DAYS];
+    private final List<Map<Integer, Integer>> buckets = new ArrayList<>(WINDOW_DAYS);
+    private final Map<Integer, Integer> totals = new HashMap<>(); // Sum of the live buckets
+    private long currentDay;
+
+    // Top products per CatalogSnapshot.categoryKey, rebuilt lazily after a change
+    private Map<String, List<Integer>> topByCategory = Collections.emptyMap();
+    private boolean dirty = true;
+
+    private BestsellerTracker(long today) {
+        for (int i = 0; i < WINDOW_DAYS; i++) {
+            buckets.add(new HashMap<>());
+            bucketDay[i] = Long.MIN_VALUE;
+        }
+        currentDay = today;
+    }
+
+    // ---------------------------------
+    // --- Shared Instance ---
+    // ---------------------------------
+
+    /** The shared tracker, seeding it from recent orders off the EDT on first use. */
+    public static synchronized CompletableFuture<BestsellerTracker> getAsync() {
+        BestsellerTracker current = instance;
+        if (current != null) {
+            return CompletableFuture.completedFuture(current);
+        }
+        if (loading == null) {
+            pending = new LinkedHashMap<>(); // Before the query starts, so no order slips between
+            loading = AsyncDataAccess.supply(conn -> {
+                Set<Integer> seen = new HashSet<>();
+                BestsellerTracker tracker = load(conn, LocalDate.now().toEpochDay(), seen);
+                publish(tracker, seen);
+                return tracker;
+            });
+            loading.whenComplete((tracker, error) -> {
+                synchronized (BestsellerTracker.class) {
+                    loading = null;
+                    pending = null;
+                }
+            });
+        }
+        return loading;
+    }
+
+    /**
+     * Records a committed order. While the tracker is being seeded the order is held and
+     * replayed unless the seed query already read it; before any seeding it is ignored, since
+     * the seed query reads every committed order in the window.
+     */
+    public static void orderPlaced(int orderId, List<Integer> productIds, List<Integer> quantities) {
+        long today = LocalDate.now().toEpochDay();
+        BestsellerTracker current = instance;
+        if (current == null) {
+            synchronized (BestsellerTracker.class) {
+                current = instance;
+                if (current == null) {
+                    if (pending != null) {
+                        pending.put(orderId, new PendingOrder(today, productIds, quantities));
+                    }
+                    return;
+                }
+            }
+        }
+        current.record(today, productIds, quantities);
+    }
+
+    // Replays the orders the seed query did not see, then makes the tracker visible
+    private static synchronized void publish(BestsellerTracker tracker, Set<Integer> seen) {
+        for (Map.Entry<Integer, PendingOrder> entry : pending.entrySet()) {
+            if (!seen.contains(entry.getKey())) {
+                PendingOrder order = entry.getValue();
+                tracker.record(order.day, order.productIds, order.quantities);
+            }
+        }
+        pending = null;
+        instance = tracker;
+    }
+
+    /**
+     * One query over the window's order lines, added to day buckets. Reads lines rather than
+     * per-day sums so the order ids it saw can be put in seen.
+     */
+    static BestsellerTracker load(Connection conn, long today, Set<Integer> seen) throws SQLException {
+        BestsellerTracker tracker = new BestsellerTracker(today);
+        String sql = "SELECT oi.order_id, oi.product_id, DATE(o.order_date) AS day, oi.quantity " +
+                     "FROM orderitems oi JOIN orders o ON oi.order_id = o.order_id " +
+                     "WHERE o.order_date >= ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setDate(1, Date.valueOf(LocalDate.ofEpochDay(today - WINDOW_DAYS + 1)));
+            DBConnection.streamResults(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    seen.add(rs.getInt("order_id"));
+                    long day = rs.getDate("day").toLocalDate().toEpochDay();
+                    tracker.add(day, rs.getInt("product_id"), rs.getInt("quantity"));
+                }
+            }
+        }
+        return tracker;
+    }
+
+    // Keeps category membership current: an admin may move a product to another category
+    static {
+        CatalogCache.addListener(new CatalogCache.Listener() {
+            @Override
+            public void catalogLoaded(CatalogSnapshot snapshot) {
+                markDirty();
+            }
+
+            @Override
+            public void productChanged(Product product) {
+                markDirty();
+            }
+
+            @Override
+            public void productRemoved(int productId) {
+                markDirty();
+            }
+
+            private void markDirty() {
+                BestsellerTracker current = instance;
+                if (current != null) {
+                    synchronized (current) {
+                        current.dirty = true;
+                    }
+                }
+            }
+        });
+    }
+
+    // ---------------------------------
+    // --- Queries ---
+    // ---------------------------------
+
+    /**
+     * Best-selling products of a category over the window, most units first. The catalog is
+     * used to map ids to products and categories; deleted products are skipped.
+     */
+    public synchronized List<Product> top(String category, int limit, CatalogSnapshot catalog) {
+        advanceTo(LocalDate.now().toEpochDay());
+        if (dirty) {
+            topByCategory = rank(catalog);
+            dirty = false;
+        }
+        List<Integer> ids = topByCategory.getOrDefault(CatalogSnapshot.categoryKey(category), Collections.emptyList());
+        List<Product> products = new ArrayList<>(Math.min(limit, ids.size()));
+        for (int id : ids) {
+            Product p = catalog.getProduct(id);
+            if (p != null) {
+                products.add(p);
+                if (products.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return products;
+    }
+
+    /** Units sold in the window. */
+    public synchronized int unitsSold(int productId) {
+        advanceTo(LocalDate.now().toEpochDay());
+        return totals.getOrDefault(productId, 0);
+    }
+
+    // Sorts the window totals once and splits them by category, matched like the shelves match them
+    private Map<String, List<Integer>> rank(CatalogSnapshot catalog) {
+        Integer[] ids = totals.keySet().toArray(new Integer[0]);
+        Arrays.sort(ids, (a, b) -> {
+            int byUnits = Integer.compare(totals.get(b), totals.get(a));
+            return byUnits != 0 ? byUnits : Integer.compare(a, b);
+        });
+        Map<String, List<Integer>> ranked = new HashMap<>();
+        for (Integer id : ids) {
+            Product p = catalog.getProduct(id);
+            if (p != null && p.getCategory() != null) {
+                ranked.computeIfAbsent(CatalogSnapshot.categoryKey(p.getCategory()), c -> new ArrayList<>()).add(id);
+            }
+        }
+        return ranked;
+    }
+
+    // ---------------------------------
+    // --- Incremental Updates ---
+    // ---------------------------------
+
+    private synchronized void record(long day, List<Integer> productIds, List<Integer> quantities) {
+        advanceTo(day);
+        for (int i = 0; i < productIds.size(); i++) {
+            add(day, productIds.get(i), quantities.get(i));
+        }
+    }
+
+    private void add(long day, int productId, int units) {
+        if (day <= currentDay - WINDOW_DAYS || day > currentDay || units <= 0) {
+            return;
+        }
+        int slot = (int) Math.floorMod(day, (long) WINDOW_DAYS);
+        if (bucketDay[slot] != day) {
+            expire(slot);
+            bucketDay[slot] = day;
+        }
+        buckets.get(slot).merge(productId, units, Integer::sum);
+        totals.merge(productId, units, Integer::sum);
+        dirty = true;
+    }
+
+    // Moves the window forward, dropping days that fell out of it
+    private void advanceTo(long today) {
+        if (today <= currentDay) {
+            return;
+        }
+        currentDay = today;
+        for (int slot = 0; slot < WINDOW_DAYS; slot++) {
+            if (bucketDay[slot] != Long.MIN_VALUE && bucketDay[slot] <= today - WINDOW_DAYS) {
+                expire(slot);
+            }
+        }
+    }
+
+    private void expire(int slot) {
+        for (Map.Entry<Integer, Integer> entry : buckets.get(slot).entrySet()) {
+            int remaining = totals.get(entry.getKey()) - entry.getValue();
+            if (remaining > 0) {
+                totals.put(entry.getKey(), remaining);
+            } else {
+                totals.remove(entry.getKey());
+            }
+        }
+        buckets.get(slot).clear();
+        bucketDay[slot] = Long.MIN_VALUE;
+        dirty = true;
+    }
+
+    private static final class PendingOrder {
+        final long day;
+        final List<Integer> productIds;
+        final List<Integer> quantities;
+
+        PendingOrder(long day, List<Integer> productIds, List<Integer> quantities) {
+            this.day = day;
+            this.productIds = new ArrayList<>(productIds);
+            this.quantities = new ArrayList<>(quantities);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind buffer for one user's open cart. Add, set-quantity and remove calls return at
+ * once; the changes are written to the Cart table a moment later, coalesced per product
+ * (five clicks on "Add to Cart" become one row write) and sent as JDBC batches in a single
+ * transaction.
+ *
+ * A flush runs {@link #FLUSH_DELAY_MILLIS} after the first unwritten change, before checkout
+ * and before the cart is read back ({@link #flush()}), and on JVM exit. If a flush fails the
+ * changes are kept, merged with anything newer, and retried; {@link Listener}s hear about it
+ * so the user is not told "added" for a change that is not saved.
+ *
+ * Only failures that can pass (connection loss, timeouts, deadlocks) are retried. If the
+ * database rejects the batch for any other reason, each line is written on its own so one
+ * bad line (say, a product an admin just deleted) cannot hold back the rest; lines that are
+ * still rejected are dropped and reported.
+ */
+public class CartBuffer {
+
+    public static final long FLUSH_DELAY_MILLIS = 2_000;
+    /** Most units of one product a cart line can reach by adding; adds beyond it are capped, here and in SQL. */
+    public static final int MAX_QUANTITY = 99;
+    private static final long RETRY_DELAY_MILLIS = 10_000;
+
+    private static final String ADD_SQL =
+        "INSERT INTO Cart (username, product_id, quantity, product_name, price) VALUES (?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE quantity = LEAST(quantity + VALUES(quantity), " + MAX_QUANTITY + "), " +
+        "product_name = VALUES(product_name), price = VALUES(price)";
+    private static final String SET_SQL =
+        "INSERT INTO Cart (username, product_id, quantity, product_name, price) VALUES (?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), " +
+        "product_name = VALUES(product_name), price = VALUES(price)";
+    private static final String REMOVE_SQL =
+        "DELETE FROM Cart WHERE username = ? AND product_id = ? AND order_id IS NULL";
+
+    private static final Map<String, CartBuffer> BUFFERS = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cart-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // --- Metrics: changes accepted vs. rows actually written ---
+    private static final AtomicLong changes = new AtomicLong();
+    private static final AtomicLong rowWrites = new AtomicLong();
+    private static final AtomicLong flushes = new AtomicLong();
+    private static final AtomicLong failedFlushes = new AtomicLong();
+    private static final AtomicLong rejectedChanges = new AtomicLong();
+
+    static {
+        // Write out whatever is still buffered before the pool closes on exit
+        DBConnection.beforeShutdown(CartBuffer::flushAll);
+    }
+
+    /** Notified on the flushing thread (never the EDT); hand UI work to the EDT. */
+    public interface Listener {
+        /** Writes are failing; the changes are kept and retried. Reported once until a flush succeeds. */
+        default void writesDelayed(SQLException error) {}
+
+        /** The database rejected the changes to these products; they were dropped. */
+        default void changesRejected(List<Integer> productIds, SQLException error) {}
+    }
+
+    private final String username;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private boolean delayReported = false;                       // guarded by this
+    private Map<Integer, Change> pending = new LinkedHashMap<>(); // guarded by this
+    private boolean flushScheduled = false;                      // guarded by this
+    private final Object flushLock = new Object();               // one flush at a time
+
+    private CartBuffer(String username) {
+        this.username = username;
+    }
+
+    /** The buffer for a user's open cart. */
+    public static CartBuffer forUser(String username) {
+        return BUFFERS.computeIfAbsent(username, CartBuffer::new);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // ---------------------------------
+    // --- Changes (return immediately) ---
+    // ---------------------------------
+
+    /** Adds quantity to the product's line, creating it if needed. */
+    public void add(int productId, int quantity, String productName, double price) {
+        record(productId, new Change(Kind.ADD, Math.min(quantity, MAX_QUANTITY), productName, price));
+    }
+
+    /** Sets the line's quantity; zero or less removes it. */
+    public void setQuantity(int productId, int quantity, String productName, double price) {
+        // Not capped: the cart editor bounds it, and may lower a line saved above the cap step by step
+        record(productId, quantity > 0 ? new Change(Kind.SET, quantity, productName, price) : Change.REMOVE);
+    }
+
+    /** Removes the product's line. */
+    public void remove(int productId) {
+        record(productId, Change.REMOVE);
+    }
+
+    /** True while changes are waiting to be written. */
+    public synchronized boolean hasPendingChanges() {
+        return !pending.isEmpty();
+    }
+
+    private synchronized void record(int productId, Change change) {
+        changes.incrementAndGet();
+        pending.merge(productId, change, Change::then);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            FLUSHER.schedule(this::flushQuietly, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // ---------------------------------
+    // --- Flushing ---
+    // ---------------------------------
+
+    /** Writes all buffered changes now. Blocks; call off the EDT (e.g. before checkout). */
+    public void flush() throws SQLException {
+        synchronized (flushLock) {
+            Map<Integer, Change> batch;
+            synchronized (this) {
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                flushScheduled = false;
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try (Connection conn = DBConnection.getConnection()) {
+                try {
+                    write(conn, batch);
+                } catch (SQLException ex) {
+                    if (isTransient(ex)) {
+                        throw ex;
+                    }
+                    writeEach(conn, batch);
+                }
+                flushes.incrementAndGet();
+                synchronized (this) {
+                    delayReported = false;
+                }
+            } catch (SQLException ex) {
+                // Transient (or no connection at all): keep whatever was not written and retry
+                failedFlushes.incrementAndGet();
+                requeue(batch);
+                throw ex;
+            }
+        }
+    }
+
+    /** Flushes on a background thread. */
+    public CompletableFuture<Void> flushAsync() {
+        return AsyncDataAccess.call(() -> {
+            flush();
+            return null;
+        });
+    }
+
+    /** Flushes every user's buffer; failures are logged. */
+    public static void flushAll() {
+        for (CartBuffer buffer : BUFFERS.values()) {
+            try {
+                buffer.flush();
+            } catch (SQLException ex) {
+                System.err.println("Could not save cart changes for " + buffer.username + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    public static String getStats() {
+        return "changes=" + changes.get() + ", rowWrites=" + rowWrites.get() + ", flushes=" + flushes.get()
+            + ", failedFlushes=" + failedFlushes.get() + ", rejectedChanges=" + rejectedChanges.get();
+    }
+
+    // Timer-driven flushes have no caller to throw to, so failures go to the listeners
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException ex) {
+            System.err.println("Cart flush failed, will retry: " + ex.getMessage());
+            boolean report;
+            synchronized (this) {
+                report = !delayReported;
+                delayReported = true;
+            }
+            if (report) {
+                for (Listener listener : listeners) {
+                    listener.writesDelayed(ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * The batch was rejected outright: writes each line alone, drops and reports the lines the
+     * database still rejects, and rethrows a transient failure if one comes up. Written and
+     * dropped lines are removed from batch, so the caller requeues only what is left.
+     */
+    private void writeEach(Connection conn, Map<Integer, Change> batch) throws SQLException {
+        List<Integer> rejected = new ArrayList<>();
+        SQLException rejection = null;
+        try {
+            for (Map.Entry<Integer, Change> entry : new ArrayList<>(batch.entrySet())) {
+                try {
+                    write(conn, Collections.singletonMap(entry.getKey(), entry.getValue()));
+                } catch (SQLException ex) {
+                    if (isTransient(ex)) {
+                        throw ex;
+                    }
+                    System.err.println("Cart change for product " + entry.getKey() + " rejected, dropping it: " + ex.getMessage());
+                    rejected.add(entry.getKey());
+                    rejection = ex;
+                }
+                batch.remove(entry.getKey());
+            }
+        } finally {
+            if (!rejected.isEmpty()) {
+                rejectedChanges.addAndGet(rejected.size());
+                for (Listener listener : listeners) {
+                    listener.changesRejected(rejected, rejection);
+                }
+            }
+        }
+    }
+
+    /** True for failures worth retrying later: lost connections, timeouts, deadlocks. */
+    private static boolean isTransient(SQLException ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientException || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            // SQLState class 08 is a connection failure; a new connection may well work
+            if (t instanceof SQLException) {
+                String state = ((SQLException) t).getSQLState();
+                if (state != null && state.startsWith("08")) {
+                    return true;
+                }
+                SQLException next = ((SQLException) t).getNextException();
+                if (next != null && next != t.getCause() && isTransient(next)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // One transaction, one batch per statement kind
+    private void write(Connection conn, Map<Integer, Change> batch) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement add = conn.prepareStatement(ADD_SQL);
+             PreparedStatement set = conn.prepareStatement(SET_SQL);
+             PreparedStatement remove = conn.prepareStatement(REMOVE_SQL)) {
+            int adds = 0, sets = 0, removes = 0;
+            for (Map.Entry<Integer, Change> entry : batch.entrySet()) {
+                int productId = entry.getKey();
+                Change change = entry.getValue();
+                switch (change.kind) {
+                    case ADD:
+                        bindLine(add, productId, change);
+                        add.addBatch();
+                        adds++;
+                        break;
+                    case SET:
+                        bindLine(set, productId, change);
+                        set.addBatch();
+                        sets++;
+                        break;
+                    case REMOVE:
+                        remove.setString(1, username);
+                        remove.setInt(2, productId);
+                        remove.addBatch();
+                        removes++;
+                        break;
+                }
+            }
+            if (adds > 0) add.executeBatch();
+            if (sets > 0) set.executeBatch();
+            if (removes > 0) remove.executeBatch();
+            conn.commit();
+            rowWrites.addAndGet(batch.size());
+        } catch (SQLException ex) {
+            try {
+                conn.rollback();
+            } catch (SQLException rollbackEx) {
+                ex.addSuppressed(rollbackEx);
+            }
+            throw ex;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void bindLine(PreparedStatement ps, int productId, Change change) throws SQLException {
+        ps.setString(1, username);
+        ps.setInt(2, productId);
+        ps.setInt(3, change.quantity);
+        ps.setString(4, change.productName);
+        ps.setDouble(5, change.price);
+    }
+
+    // A failed batch goes back in front of anything recorded meanwhile
+    private synchronized void requeue(Map<Integer, Change> failed) {
+        Map<Integer, Change> merged = new LinkedHashMap<>(failed);
+        for (Map.Entry<Integer, Change> entry : pending.entrySet()) {
+            merged.merge(entry.getKey(), entry.getValue(), Change::then);
+        }
+        pending = merged;
+        if (!flushScheduled) {
+            flushScheduled = true;
+            FLUSHER.schedule(this::flushQuietly, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // ---------------------------------
+    // --- Coalescing ---
+    // ---------------------------------
+
+    private enum Kind { ADD, SET, REMOVE }
+
+    // The net effect of all buffered changes to one product's line
+    private static final class Change {
+        static final Change REMOVE = new Change(Kind.REMOVE, 0, null, 0);
+
+        final Kind kind;
+        final int quantity;
+        final String productName;
+        final double price;
+
+        Change(Kind kind, int quantity, String productName, double price) {
+            this.kind = kind;
+            this.quantity = quantity;
+            this.productName = productName;
+            this.price = price;
+        }
+
+        /** This change followed by next, as one change. */
+        Change then(Change next) {
+            if (next.kind != Kind.ADD) {
+                return next; // SET and REMOVE do not depend on what came before
+            }
+            switch (kind) {
+                case ADD:
+                    return new Change(Kind.ADD, Math.min(quantity + next.quantity, MAX_QUANTITY), next.productName, next.price);
+                case SET:
+                    return new Change(Kind.SET, Math.min(quantity + next.quantity, MAX_QUANTITY), next.productName, next.price);
+                default:
+                    // Removed, then added again: the line ends up holding just the new quantity
+                    return new Change(Kind.SET, next.quantity, next.productName, next.price);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Client-side copy of the user's open cart, as shown by the cart page. Changes are applied
+ * as deltas: listeners hear which single line changed or went away, and the grand total is
+ * adjusted by that line's difference instead of being summed again.
+ *
+ * Money is kept in paise (long) so repeated adjustments never drift. EDT only.
+ */
+public class CartModel {
+
+    /** Notified on the EDT after each change. */
+    public interface Listener {
+        /** All lines were replaced (e.g. after reading the cart from the database). */
+        default void linesReset() {}
+
+        /** The line at index changed quantity. */
+        default void lineUpdated(int index, Line line) {}
+
+        /** The line that was at index has been removed. */
+        default void lineRemoved(int index, Line line) {}
+    }
+
+    /** One product line of the cart. */
+    public static final class Line {
+        public final int cartItemId;
+        public final int productId;
+        public final String name;
+        public final double price;
+        private final long pricePaise;
+        private int quantity;
+
+        public Line(int cartItemId, int productId, String name, double price, int quantity) {
+            this.cartItemId = cartItemId;
+            this.productId = productId;
+            this.name = name;
+            this.price = price;
+            this.pricePaise = Math.round(price * 100);
+            this.quantity = quantity;
+        }
+
+        public int getQuantity() { return quantity; }
+
+        public double getSubtotal() { return subtotalPaise() / 100.0; }
+
+        private long subtotalPaise() { return pricePaise * quantity; }
+    }
+
+    private final List<Line> lines = new ArrayList<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private long grandTotalPaise = 0;
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /** Replaces every line (the result of a full read). */
+    public void setLines(List<Line> newLines) {
+        lines.clear();
+        lines.addAll(newLines);
+        grandTotalPaise = 0;
+        for (Line line : lines) {
+            grandTotalPaise += line.subtotalPaise();
+        }
+        for (Listener listener : listeners) {
+            listener.linesReset();
+        }
+    }
+
+    /** Changes a line's quantity; returns false if the product is not in the cart. */
+    public boolean setQuantity(int productId, int quantity) {
+        int index = indexOf(productId);
+        if (index < 0) {
+            return false;
+        }
+        Line line = lines.get(index);
+        if (line.quantity == quantity) {
+            return true;
+        }
+        grandTotalPaise -= line.subtotalPaise();
+        line.quantity = quantity;
+        grandTotalPaise += line.subtotalPaise();
+        for (Listener listener : listeners) {
+            listener.lineUpdated(index, line);
+        }
+        return true;
+    }
+
+    /** Removes a line; returns false if the product is not in the cart. */
+    public boolean remove(int productId) {
+        int index = indexOf(productId);
+        if (index < 0) {
+            return false;
+        }
+        Line line = lines.remove(index);
+        grandTotalPaise -= line.subtotalPaise();
+        for (Listener listener : listeners) {
+            listener.lineRemoved(index, line);
+        }
+        return true;
+    }
+
+    public double getGrandTotal() { return grandTotalPaise / 100.0; }
+
+    public int size() { return lines.size(); }
+
+    public boolean isEmpty() { return lines.isEmpty(); }
+
+    public Line get(int index) { return lines.get(index); }
+
+    public List<Line> getLines() { return Collections.unmodifiableList(lines); }
+
+    private int indexOf(int productId) {
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).productId == productId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,113 @@
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table view of a {@link CartModel} for the cart page's JTable. It follows the cart model's
+ * deltas with row-level events, so a quantity change or removal repaints one row (or shifts
+ * the rows below it) instead of rebuilding the table.
+ *
+ * Quantity edits are handed to the page through {@link QuantityEditor}, which decides what is
+ * written; the model itself never touches the database.
+ */
+@SuppressWarnings("serial")
+public class CartTableModel extends AbstractTableModel {
+
+    public static final int ITEM = 0;
+    public static final int PRICE = 1;
+    public static final int QUANTITY = 2;
+    public static final int SUBTOTAL = 3;
+    public static final int ACTIONS = 4;
+
+    private static final String[] COLUMNS = {"Item", "Price", "Quantity", "Subtotal", "Actions"};
+
+    /** Receives quantity edits made in the table. */
+    public interface QuantityEditor {
+        void quantityChanged(CartModel.Line line, int quantity);
+    }
+
+    private final CartModel cart;
+    private final QuantityEditor quantityEditor;
+
+    public CartTableModel(CartModel cart, QuantityEditor quantityEditor) {
+        this.cart = cart;
+        this.quantityEditor = quantityEditor;
+        cart.addListener(new CartModel.Listener() {
+            @Override
+            public void linesReset() {
+                fireTableDataChanged();
+            }
+
+            @Override
+            public void lineUpdated(int index, CartModel.Line line) {
+                fireTableRowsUpdated(index, index);
+            }
+
+            @Override
+            public void lineRemoved(int index, CartModel.Line line) {
+                fireTableRowsDeleted(index, index);
+            }
+        });
+    }
+
+    public CartModel.Line getLine(int row) {
+        return cart.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return cart.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case PRICE:
+            case SUBTOTAL:
+                return Double.class;
+            case QUANTITY:
+                return Integer.class;
+            case ACTIONS:
+                return CartModel.Line.class;
+            default:
+                return String.class;
+        }
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column == QUANTITY || column == ACTIONS;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        CartModel.Line line = cart.get(row);
+        switch (column) {
+            case ITEM:
+                return line.name;
+            case PRICE:
+                return line.price;
+            case QUANTITY:
+                return line.getQuantity();
+            case SUBTOTAL:
+                return line.getSubtotal();
+            default:
+                return line;
+        }
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        if (column == QUANTITY && value instanceof Integer && row < cart.size()) {
+            quantityEditor.quantityChanged(cart.get(row), (Integer) value);
+        }
+    }
+}
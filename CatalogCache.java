@@ -0,0 +1,351 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of the product catalog. Browsing pages read products from memory;
+ * the snapshot is reloaded only when its TTL expires or an admin edit invalidates it.
+ *
+ * Home shelves are paged (keyset on category, product_id); pages are cached here too,
+ * with the same TTL and invalidation as the full snapshot. At most {@link #MAX_PAGES} are
+ * kept, least recently used first out.
+ *
+ * TTL defaults to 5 minutes and can be changed with -Dsareestore.catalog.ttlSeconds=N.
+ */
+public class CatalogCache {
+
+    private static final long TTL_MILLIS = Long.getLong("sareestore.catalog.ttlSeconds", 300) * 1000;
+
+    private static volatile CatalogSnapshot snapshot;
+    private static final Object LOAD_LOCK = new Object();
+
+    public static final int MAX_PAGES = 256;
+
+    // Shelf pages keyed by "category#afterId#limit"; guarded by itself
+    private static final Map<String, CachedPage> pages = new LinkedHashMap<String, CachedPage>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedPage> eldest) {
+            if (size() > MAX_PAGES) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    // Bumped by clearPages(); a page read before an invalidation is not cached after it
+    private static long pageGeneration = 0;
+
+    // Derived indexes (search, facets) kept in step with the catalog
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Notified after the catalog changes, on the thread that changed it (never the EDT for loads).
+     * Methods must be quick or hand work off; they run outside the cache's locks.
+     */
+    public interface Listener {
+        /** A full snapshot was (re)loaded from the database. */
+        default void catalogLoaded(CatalogSnapshot snapshot) {}
+
+        /** A product was added or updated by an admin edit. */
+        default void productChanged(Product product) {}
+
+        /** A product was deleted. */
+        default void productRemoved(int productId) {}
+    }
+
+    // --- Metrics (evictions counts dropped snapshots and pages; patching one product is not one) ---
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    private CatalogCache() {
+    }
+
+    public static long getTtlMillis() { return TTL_MILLIS; }
+
+    /** Returns the cached catalog, loading it (blocking) if it is missing or expired. */
+    public static CatalogSnapshot get() throws SQLException {
+        CatalogSnapshot current = freshSnapshot();
+        if (current != null) {
+            hits.incrementAndGet();
+            return current;
+        }
+        synchronized (LOAD_LOCK) {
+            // Another thread may have loaded it while we waited
+            current = freshSnapshot();
+            if (current != null) {
+                hits.incrementAndGet();
+                return current;
+            }
+            misses.incrementAndGet();
+            try (Connection conn = DBConnection.getConnection()) {
+                current = CatalogSnapshot.loadAll(conn);
+            }
+            snapshot = current;
+            ThumbnailAtlas.refreshAsync(current);
+        }
+        for (Listener listener : listeners) {
+            listener.catalogLoaded(current);
+        }
+        return current;
+    }
+
+    /** The snapshot currently held, even if expired; null if none. Never loads. */
+    public static CatalogSnapshot peek() {
+        return snapshot;
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Completes immediately on a hit; otherwise loads the catalog off the EDT. */
+    public static CompletableFuture<CatalogSnapshot> getAsync() {
+        CatalogSnapshot current = freshSnapshot();
+        if (current != null) {
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture(current);
+        }
+        return AsyncDataAccess.call(CatalogCache::get);
+    }
+
+    public static Product getProduct(int productId) throws SQLException {
+        return get().getProduct(productId);
+    }
+
+    /**
+     * Products of one category. Served from the snapshot when it is loaded; otherwise read
+     * through idx_products_category rather than loading the whole catalog.
+     */
+    public static List<Product> getByCategory(String category) throws SQLException {
+        CatalogSnapshot current = freshSnapshot();
+        if (current != null) {
+            hits.incrementAndGet();
+            return current.getByCategory(category);
+        }
+        misses.incrementAndGet();
+        try (Connection conn = DBConnection.getConnection()) {
+            return CatalogSnapshot.loadShelves(conn, List.of(category)).getByCategory(category);
+        }
+    }
+
+    // ---------------------------------
+    // --- Shelf Pages ---
+    // ---------------------------------
+
+    /**
+     * Up to limit products of a category with product_id > afterId. Served from the full
+     * snapshot if one is already loaded, otherwise from the page cache or one keyset query.
+     */
+    public static List<Product> getShelfPage(String category, int afterId, int limit) throws SQLException {
+        return getShelfPages(List.of(category), afterId, limit).get(category);
+    }
+
+    /** First page of every category, loading all missing ones with a single query. */
+    public static Map<String, List<Product>> getFirstPages(List<String> categories, int limit) throws SQLException {
+        return getShelfPages(categories, 0, limit);
+    }
+
+    private static Map<String, List<Product>> getShelfPages(List<String> categories, int afterId, int limit)
+            throws SQLException {
+        Map<String, List<Product>> result = new LinkedHashMap<>();
+        CatalogSnapshot current = freshSnapshot();
+        List<String> missing = new ArrayList<>();
+        for (String category : categories) {
+            List<Product> page = current != null ? current.getPage(category, afterId, limit) : cachedPage(category, afterId, limit);
+            if (page != null) {
+                hits.incrementAndGet();
+            } else {
+                missing.add(category);
+            }
+            result.put(category, page);
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        misses.incrementAndGet();
+        long generation;
+        synchronized (pages) {
+            generation = pageGeneration;
+        }
+        Map<String, List<Product>> loaded;
+        try (Connection conn = DBConnection.getConnection()) {
+            if (afterId == 0) {
+                loaded = CatalogSnapshot.loadFirstPages(conn, missing, limit);
+            } else {
+                loaded = new LinkedHashMap<>();
+                for (String category : missing) {
+                    loaded.put(category, CatalogSnapshot.loadPage(conn, category, afterId, limit));
+                }
+            }
+        }
+        long now = System.currentTimeMillis();
+        synchronized (pages) {
+            // An admin edit since the query started may have shifted these pages; return them, don't keep them
+            boolean keep = generation == pageGeneration;
+            for (Map.Entry<String, List<Product>> entry : loaded.entrySet()) {
+                List<Product> page = List.copyOf(entry.getValue());
+                if (keep) {
+                    pages.put(pageKey(entry.getKey(), afterId, limit), new CachedPage(page, now));
+                }
+                result.put(entry.getKey(), page);
+            }
+        }
+        return result;
+    }
+
+    private static List<Product> cachedPage(String category, int afterId, int limit) {
+        String key = pageKey(category, afterId, limit);
+        synchronized (pages) {
+            CachedPage page = pages.get(key);
+            if (page == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - page.loadedAtMillis > TTL_MILLIS) {
+                pages.remove(key);
+                evictions.incrementAndGet();
+                return null;
+            }
+            return page.products;
+        }
+    }
+
+    private static String pageKey(String category, int afterId, int limit) {
+        return CatalogSnapshot.categoryKey(category) + "#" + afterId + "#" + limit;
+    }
+
+    private static void clearPages() {
+        synchronized (pages) {
+            pageGeneration++;
+            evictions.addAndGet(pages.size());
+            pages.clear();
+        }
+    }
+
+    private static CatalogSnapshot freshSnapshot() {
+        CatalogSnapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - current.getLoadedAtMillis() > TTL_MILLIS) {
+            synchronized (LOAD_LOCK) {
+                if (snapshot == current) {
+                    snapshot = null;
+                    evictions.incrementAndGet();
+                }
+            }
+            return null;
+        }
+        return current;
+    }
+
+    // ---------------------------------
+    // --- Invalidation Hooks (admin edits) ---
+    // ---------------------------------
+
+    /** Drops the whole snapshot and all shelf pages; the next read reloads them. */
+    public static void invalidate() {
+        clearPages();
+        synchronized (LOAD_LOCK) {
+            if (snapshot != null) {
+                snapshot = null;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Re-reads one product after it was added or updated and patches it into the snapshot.
+     * Call from a background thread (it runs one query).
+     */
+    public static void productChanged(int productId) {
+        try (Connection conn = DBConnection.getConnection()) {
+            productChanged(conn, productId);
+        } catch (SQLException ex) {
+            System.err.println("Could not refresh product " + productId + " in catalog cache: " + ex.getMessage());
+            invalidate();
+        }
+    }
+
+    /** Same as {@link #productChanged(int)}, reusing the caller's connection. */
+    public static void productChanged(Connection conn, int productId) {
+        try {
+            Product product = CatalogSnapshot.loadProduct(conn, productId);
+            // Keyset pages shift when a product is added, moved or removed; admin edits are rare
+            clearPages();
+            // A load in progress holds LOAD_LOCK, so the patch is applied on top of its result
+            synchronized (LOAD_LOCK) {
+                CatalogSnapshot current = snapshot;
+                if (current != null) {
+                    snapshot = product != null ? current.withProduct(product) : current.withoutProduct(productId);
+                }
+            }
+            for (Listener listener : listeners) {
+                if (product != null) {
+                    listener.productChanged(product);
+                } else {
+                    listener.productRemoved(productId);
+                }
+            }
+        } catch (SQLException ex) {
+            System.err.println("Could not refresh product " + productId + " in catalog cache: " + ex.getMessage());
+            invalidate();
+        }
+    }
+
+    /** Removes a deleted product from the snapshot. */
+    public static void productRemoved(int productId) {
+        clearPages();
+        synchronized (LOAD_LOCK) {
+            CatalogSnapshot current = snapshot;
+            if (current != null && current.getProduct(productId) != null) {
+                snapshot = current.withoutProduct(productId);
+            }
+        }
+        for (Listener listener : listeners) {
+            listener.productRemoved(productId);
+        }
+    }
+
+    // ---------------------------------
+    // --- Metrics ---
+    // ---------------------------------
+
+    public static long getHits() { return hits.get(); }
+    public static long getMisses() { return misses.get(); }
+    public static long getEvictions() { return evictions.get(); }
+
+    public static String getStats() {
+        CatalogSnapshot current = snapshot;
+        return "hits=" + hits.get() + ", misses=" + misses.get() + ", evictions=" + evictions.get()
+            + ", products=" + (current != null ? current.size() : 0) + ", pages=" + pageCount();
+    }
+
+    private static int pageCount() {
+        synchronized (pages) {
+            return pages.size();
+        }
+    }
+
+    private static final class CachedPage {
+        final List<Product> products;
+        final long loadedAtMillis;
+
+        CachedPage(List<Product> products, long loadedAtMillis) {
+            this.products = products;
+            this.loadedAtMillis = loadedAtMillis;
+        }
+    }
+}
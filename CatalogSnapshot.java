@@ -0,0 +1,226 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An immutable, read-only view of the product catalog, indexed by product id and by category.
+ * Loaded with a single query so the home page, ProductPage and search can share one copy;
+ * see {@link CatalogCache} for the process-wide instance.
+ */
+public class CatalogSnapshot {
+
+    // Shelves shown on the home page (values must match the categories used in AddProductPage)
+    public static final String[] HOME_SHELVES = {"New Collection", "Cotton Sarees", "Silk Sarees", "Banarasi Sarees"};
+
+    private static final String COLUMNS =
+        "SELECT product_id, name, price, category, image_path, description, stock_quantity, thumbnail_key FROM Products ";
+
+    private final List<Product> products;
+    private final Map<Integer, Product> byId;
+    private final Map<String, List<Product>> byCategory;
+    private final long loadedAtMillis;
+
+    public CatalogSnapshot(List<Product> products) {
+        this(products, System.currentTimeMillis());
+    }
+
+    private CatalogSnapshot(List<Product> products, long loadedAtMillis) {
+        Map<Integer, Product> ids = new HashMap<>();
+        Map<String, List<Product>> categories = new LinkedHashMap<>();
+        for (Product p : products) {
+            ids.put(p.getId(), p);
+            categories.computeIfAbsent(categoryKey(p.getCategory()), k -> new ArrayList<>()).add(p);
+        }
+        for (Map.Entry<String, List<Product>> entry : categories.entrySet()) {
+            // Spellings that differ only in case share a list; keep it in id order for getPage
+            entry.getValue().sort(Comparator.comparingInt(Product::getId));
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+
+        this.products = Collections.unmodifiableList(new ArrayList<>(products));
+        this.byId = Collections.unmodifiableMap(ids);
+        this.byCategory = Collections.unmodifiableMap(categories);
+        this.loadedAtMillis = loadedAtMillis;
+    }
+
+    /** Loads the whole catalog (every shelf plus products outside the home shelves) in one query. */
+    public static CatalogSnapshot loadAll(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(COLUMNS + "ORDER BY category, product_id")) {
+            return new CatalogSnapshot(readProducts(ps));
+        }
+    }
+
+    /**
+     * Loads the given categories in one round trip. The IN list is served by the
+     * (category, product_id) index, which also returns rows already in shelf order.
+     */
+    public static CatalogSnapshot loadShelves(Connection conn, List<String> categories) throws SQLException {
+        StringBuilder sql = new StringBuilder(COLUMNS).append("WHERE category IN (");
+        for (int i = 0; i < categories.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") ORDER BY category, product_id");
+
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < categories.size(); i++) {
+                ps.setString(i + 1, categories.get(i));
+            }
+            return new CatalogSnapshot(readProducts(ps));
+        }
+    }
+
+    /**
+     * Keyset page of one category: up to limit products with product_id > afterId, in id order.
+     * Served by idx_products_category, so the cost does not grow with the page number.
+     */
+    public static List<Product> loadPage(Connection conn, String category, int afterId, int limit) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                COLUMNS + "WHERE category = ? AND product_id > ? ORDER BY product_id LIMIT ?")) {
+            ps.setString(1, category);
+            ps.setInt(2, afterId);
+            ps.setInt(3, limit);
+            return readProducts(ps);
+        }
+    }
+
+    /** First page of each category in one round trip (one UNION ALL branch per category). */
+    public static Map<String, List<Product>> loadFirstPages(Connection conn, List<String> categories, int limit)
+            throws SQLException {
+        // The column collation is case-insensitive, so rows are filed by categoryKey and
+        // returned under each requested name; spellings of one category share one branch
+        Map<String, List<Product>> pages = new LinkedHashMap<>();
+        Map<String, List<Product>> byKey = new LinkedHashMap<>();
+        List<String> queried = new ArrayList<>();
+        for (String category : categories) {
+            pages.put(category, byKey.computeIfAbsent(categoryKey(category), k -> {
+                queried.add(category);
+                return new ArrayList<>();
+            }));
+        }
+        if (queried.isEmpty()) {
+            return pages;
+        }
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < queried.size(); i++) {
+            if (i > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append('(').append(COLUMNS).append("WHERE category = ? ORDER BY product_id LIMIT ?)");
+        }
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (String category : queried) {
+                ps.setString(index++, category);
+                ps.setInt(index++, limit);
+            }
+            for (Product p : readProducts(ps)) {
+                List<Product> page = byKey.get(categoryKey(p.getCategory()));
+                if (page != null) {
+                    page.add(p);
+                }
+            }
+        }
+        return pages;
+    }
+
+    /** Reads a single product row; null if it no longer exists. */
+    public static Product loadProduct(Connection conn, int productId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(COLUMNS + "WHERE product_id = ?")) {
+            ps.setInt(1, productId);
+            List<Product> rows = readProducts(ps);
+            return rows.isEmpty() ? null : rows.get(0);
+        }
+    }
+
+    /** Copy of this snapshot with one product added or replaced; keeps the original load time. */
+    public CatalogSnapshot withProduct(Product product) {
+        List<Product> copy = new ArrayList<>(products.size() + 1);
+        for (Product p : products) {
+            if (p.getId() != product.getId()) {
+                copy.add(p);
+            }
+        }
+        copy.add(product);
+        copy.sort(Comparator.comparing(Product::getCategory, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+            .thenComparingInt(Product::getId));
+        return new CatalogSnapshot(copy, loadedAtMillis);
+    }
+
+    /** Copy of this snapshot without the given product; keeps the original load time. */
+    public CatalogSnapshot withoutProduct(int productId) {
+        List<Product> copy = new ArrayList<>(products.size());
+        for (Product p : products) {
+            if (p.getId() != productId) {
+                copy.add(p);
+            }
+        }
+        return new CatalogSnapshot(copy, loadedAtMillis);
+    }
+
+    static List<Product> readProducts(PreparedStatement ps) throws SQLException {
+        List<Product> list = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                list.add(readProduct(rs));
+            }
+        }
+        return list;
+    }
+
+    static Product readProduct(ResultSet rs) throws SQLException {
+        return new Product(
+            rs.getInt("product_id"),
+            rs.getString("name"),
+            rs.getDouble("price"),
+            rs.getString("category"),
+            rs.getString("image_path"),
+            rs.getString("description"),
+            rs.getInt("stock_quantity"),
+            rs.getString("thumbnail_key")
+        );
+    }
+
+    public List<Product> getProducts() { return products; }
+
+    public Product getProduct(int productId) { return byId.get(productId); }
+
+    /** Products in a category (matched case-insensitively, like MySQL), in product id order; empty if none. */
+    public List<Product> getByCategory(String category) {
+        List<Product> list = byCategory.get(categoryKey(category));
+        return list != null ? list : Collections.emptyList();
+    }
+
+    /** Same page as {@link #loadPage}, sliced from memory. */
+    public List<Product> getPage(String category, int afterId, int limit) {
+        List<Product> list = getByCategory(category);
+        int lo = 0;
+        int hi = list.size();
+        while (lo < hi) { // First product with id > afterId
+            int mid = (lo + hi) >>> 1;
+            if (list.get(mid).getId() <= afterId) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return list.subList(lo, Math.min(list.size(), lo + limit));
+    }
+
+    /** Lookup key for a category: MySQL compares the column case-insensitively, so must we. */
+    public static String categoryKey(String category) {
+        return category == null ? null : category.toLowerCase(Locale.ROOT);
+    }
+
+    public long getLoadedAtMillis() { return loadedAtMillis; }
+
+    public int size() { return products.size(); }
+}
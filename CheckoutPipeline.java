@@ -0,0 +1,458 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTimeoutException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * One checkout, run as a sequence of stages on a background thread:
+ * validate -&gt; reserve stock -&gt; create order -&gt; capture payment -&gt; finalize.
+ *
+ * All stages share one connection and one transaction, so the order commits whole or not at
+ * all. Each stage has its own time budget (and the checkout an overall deadline); statements
+ * get a query timeout of whatever is left, and a stage that overruns fails the checkout with
+ * a {@link StageTimeoutException} naming it, rolling everything back. Budgets are only
+ * enforced up to the commit; once it has been sent the order stands. Stage latencies are kept
+ * in {@link #getStats()} so a slow stage shows up.
+ */
+public class CheckoutPipeline {
+
+    public static final long DEADLINE_MILLIS = 20_000;
+
+    public enum Stage {
+        VALIDATE("Checking your cart", 5_000),
+        RESERVE("Reserving stock", 5_000),
+        CREATE_ORDER("Creating your order", 5_000),
+        CAPTURE("Capturing payment", 10_000),
+        FINALIZE("Finalizing", 5_000);
+
+        public final String label;
+        public final long timeoutMillis;
+
+        // --- Metrics ---
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+
+        Stage(String label, long timeoutMillis) {
+            this.label = label;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        private void record(long nanos) {
+            runs.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    private static final String CART_SQL =
+        "SELECT product_id, quantity FROM Cart WHERE username = ? AND order_id IS NULL " +
+        "ORDER BY product_id FOR UPDATE";
+    private static final String EXISTING_SQL =
+        "SELECT order_id FROM orders WHERE idempotency_key = ? AND username = ?";
+    // Takes the units only if they are all there; concurrent buyers queue on the row lock
+    private static final String RESERVE_SQL =
+        "UPDATE Products SET stock_quantity = stock_quantity - ? WHERE product_id = ? AND stock_quantity >= ?";
+    private static final String STOCK_SQL = "SELECT name, stock_quantity FROM Products WHERE product_id = ?";
+    // The shipping address goes directly into the orders table, using the shipping_* columns
+    private static final String ORDER_SQL =
+        "INSERT INTO orders (username, total_amount, payment_method, status, shipping_name, shipping_state, " +
+        "shipping_city, shipping_address, shipping_zip, order_date, idempotency_key) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, NOW(), ?)";
+    // Copied inside MySQL at the current product price; no cart rows travel to the client
+    private static final String COPY_SQL =
+        "INSERT INTO orderitems (order_id, product_id, quantity, price_at_purchase) " +
+        "SELECT ?, c.product_id, c.quantity, p.price " +
+        "FROM Cart c JOIN Products p ON c.product_id = p.product_id " +
+        "WHERE c.username = ? AND c.order_id IS NULL";
+    private static final String CAPTURE_SQL = "UPDATE orders SET status = ? WHERE order_id = ?";
+    private static final String DELETE_SQL = "DELETE FROM Cart WHERE username = ? AND order_id IS NULL";
+
+    private final String username;
+    private final String idempotencyKey;
+    private final double totalPrice;
+    private final boolean cashOnDelivery;
+    private final String name, state, city, address, zip;
+
+    private long deadline;      // System.nanoTime()
+    private long stageStart;
+    private long stageDeadline;
+    private Stage stage;
+
+    public CheckoutPipeline(String username, String idempotencyKey, double totalPrice, boolean cashOnDelivery,
+                            String name, String state, String city, String address, String zip) {
+        this.username = username;
+        this.idempotencyKey = idempotencyKey;
+        this.totalPrice = totalPrice;
+        this.cashOnDelivery = cashOnDelivery;
+        this.name = name;
+        this.state = state;
+        this.city = city;
+        this.address = address;
+        this.zip = zip;
+    }
+
+    /**
+     * Starts the checkout on the data-access executor. progress hears each stage as it starts
+     * (on the background thread). Completes with the order id, or -1 if the cart held nothing
+     * to order.
+     */
+    public CompletableFuture<Integer> start(Consumer<Stage> progress) {
+        return AsyncDataAccess.call(() -> run(progress));
+    }
+
+    public static String getStats() {
+        StringBuilder sb = new StringBuilder();
+        for (Stage s : Stage.values()) {
+            long runs = s.runs.get();
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(s.name().toLowerCase()).append("=")
+              .append(runs == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(s.totalNanos.get() / runs)).append("ms avg/")
+              .append(TimeUnit.NANOSECONDS.toMillis(s.maxNanos.get())).append("ms max/")
+              .append(s.timeouts.get()).append(" timeouts");
+        }
+        return sb.toString();
+    }
+
+    // ---------------------------------
+    // --- Stages ---
+    // ---------------------------------
+
+    private int run(Consumer<Stage> progress) throws SQLException {
+        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DEADLINE_MILLIS);
+
+        // Cart changes may still be buffered; the order must see all of them
+        enter(Stage.VALIDATE, progress);
+        CartBuffer.forUser(username).flush();
+
+        List<Integer> orderedIds = new ArrayList<>();
+        List<Integer> orderedQuantities = new ArrayList<>();
+        int orderId;
+        boolean committing = false;
+
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // VALIDATE: lock the open cart lines so every later stage sees the same cart
+                try (PreparedStatement ps = prepare(conn, CART_SQL)) {
+                    ps.setString(1, username);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            orderedIds.add(rs.getInt("product_id"));
+                            orderedQuantities.add(rs.getInt("quantity"));
+                        }
+                    }
+                }
+                if (orderedIds.isEmpty()) {
+                    // A retry of a checkout that already committed finds its cart gone
+                    conn.rollback();
+                    return existingOrder(conn);
+                }
+                leave();
+
+                enter(Stage.RESERVE, progress);
+                reserveStock(conn, orderedIds, orderedQuantities);
+                leave();
+
+                enter(Stage.CREATE_ORDER, progress);
+                try {
+                    orderId = insertOrder(conn);
+                } catch (SQLIntegrityConstraintViolationException duplicate) {
+                    // Already placed under this key (an earlier reply was lost): report that order
+                    conn.rollback();
+                    int existing = existingOrder(conn);
+                    if (existing > 0) {
+                        return existing;
+                    }
+                    throw duplicate;
+                }
+                int copied;
+                try (PreparedStatement ps = prepare(conn, COPY_SQL)) {
+                    ps.setInt(1, orderId);
+                    ps.setString(2, username);
+                    copied = ps.executeUpdate();
+                }
+                if (copied == 0) {
+                    conn.rollback();
+                    return -1;
+                }
+                leave();
+
+                // No payment gateway yet: a card order is captured by marking it paid,
+                // cash on delivery stays pending until the courier collects
+                enter(Stage.CAPTURE, progress);
+                if (!cashOnDelivery) {
+                    try (PreparedStatement ps = prepare(conn, CAPTURE_SQL)) {
+                        ps.setString(1, "Paid");
+                        ps.setInt(2, orderId);
+                        ps.executeUpdate();
+                    }
+                }
+                leave();
+
+                enter(Stage.FINALIZE, progress);
+                try (PreparedStatement ps = prepare(conn, DELETE_SQL)) {
+                    ps.setString(1, username);
+                    ps.executeUpdate();
+                }
+                secondsLeft(); // the last budget check: do not commit past the deadline
+                committing = true;
+                conn.commit();
+                // Committed: a slow commit is recorded, but the order stands
+                leave(false);
+            } catch (SQLException ex) {
+                if (committing) {
+                    // The commit itself failed; MySQL may or may not have applied it
+                    System.err.println("Checkout commit failed, outcome unknown: " + ex.getMessage());
+                    throw ex;
+                }
+                try {
+                    conn.rollback();
+                    System.err.println("Checkout rolled back in stage " + stage + ": " + ex.getMessage());
+                } catch (SQLException rollbackEx) { }
+                if (ex instanceof SQLTimeoutException) {
+                    stage.timeouts.incrementAndGet();
+                    throw new StageTimeoutException(stage, ex);
+                }
+                throw ex;
+            } finally {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException finalEx) { }
+            }
+        }
+
+        // Only committed orders feed "Customers also bought", bestsellers and search ranking
+        refreshStockLater(orderedIds);
+        RecommendationEngine.orderPlaced(orderId, orderedIds);
+        BestsellerTracker.orderPlaced(orderId, orderedIds, orderedQuantities);
+        SearchIndex.orderPlaced(orderedIds, orderedQuantities);
+        return orderId;
+    }
+
+    /**
+     * Inserts the order row under the idempotency key and returns its id. A key that already
+     * placed an order makes the insert fail on the unique index instead of duplicating it.
+     */
+    private int insertOrder(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(ORDER_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setQueryTimeout(secondsLeft());
+            ps.setString(1, username);
+            ps.setDouble(2, totalPrice);
+            ps.setString(3, cashOnDelivery ? "Cash on Delivery" : "Card");
+            ps.setString(4, "Pending");
+            ps.setString(5, name);
+            ps.setString(6, state);
+            ps.setString(7, city);
+            ps.setString(8, address);
+            ps.setString(9, zip);
+            ps.setString(10, idempotencyKey);
+            ps.executeUpdate();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        }
+        throw new SQLException("No order id was generated.");
+    }
+
+    /**
+     * Takes every line's units out of stock with one batch of conditional updates (the lines
+     * come sorted by product id, so concurrent checkouts lock rows in the same order). A line
+     * whose update matched no row did not have enough stock; if there is any, the transaction
+     * is rolled back and an {@link OutOfStockException} lists them.
+     *
+     * The reservation lives in the checkout transaction: a timeout, an error or a lost
+     * connection rolls it back, so an abandoned checkout never keeps stock.
+     */
+    private void reserveStock(Connection conn, List<Integer> productIds, List<Integer> quantities) throws SQLException {
+        Savepoint beforeReserve = conn.setSavepoint();
+        int[] reserved;
+        try (PreparedStatement ps = prepare(conn, RESERVE_SQL)) {
+            for (int i = 0; i < productIds.size(); i++) {
+                bindReserve(ps, productIds.get(i), quantities.get(i));
+                ps.addBatch();
+            }
+            reserved = ps.executeBatch();
+
+            // Each update matches one row or none. Any other count (SUCCESS_NO_INFO,
+            // EXECUTE_FAILED, a short array) proves nothing, so undo the batch and
+            // reserve line by line, where executeUpdate gives an exact count
+            if (!allConfirmed(reserved, productIds.size())) {
+                conn.rollback(beforeReserve);
+                reserved = new int[productIds.size()];
+                for (int i = 0; i < productIds.size(); i++) {
+                    bindReserve(ps, productIds.get(i), quantities.get(i));
+                    reserved[i] = ps.executeUpdate();
+                    if (reserved[i] != 0 && reserved[i] != 1) {
+                        throw new SQLException("Unexpected update count " + reserved[i] + " reserving product " + productIds.get(i) + ".");
+                    }
+                }
+            }
+        }
+
+        List<Integer> failed = new ArrayList<>();
+        for (int i = 0; i < reserved.length; i++) {
+            if (reserved[i] != 1) {
+                failed.add(i);
+            }
+        }
+        if (failed.isEmpty()) {
+            return;
+        }
+
+        // Rare path: read what is left so the buyer gets a per-line answer
+        List<Shortage> shortages = new ArrayList<>();
+        try (PreparedStatement ps = prepare(conn, STOCK_SQL)) {
+            for (int i : failed) {
+                int productId = productIds.get(i);
+                ps.setInt(1, productId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        shortages.add(new Shortage(productId, rs.getString("name"), quantities.get(i), rs.getInt("stock_quantity")));
+                    } else {
+                        shortages.add(new Shortage(productId, "Product #" + productId, quantities.get(i), 0));
+                    }
+                }
+            }
+        }
+        conn.rollback();
+        throw new OutOfStockException(shortages);
+    }
+
+    private static void bindReserve(PreparedStatement ps, int productId, int quantity) throws SQLException {
+        ps.setInt(1, quantity);
+        ps.setInt(2, productId);
+        ps.setInt(3, quantity);
+    }
+
+    private static boolean allConfirmed(int[] counts, int lines) {
+        if (counts.length != lines) {
+            return false;
+        }
+        for (int count : counts) {
+            if (count != 0 && count != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Stock changed under the catalog; patch the snapshot (and the in-stock facet) off the caller's path
+    private static void refreshStockLater(List<Integer> productIds) {
+        AsyncDataAccess.executor().execute(() -> {
+            try (Connection conn = DBConnection.getConnection()) {
+                for (int productId : productIds) {
+                    CatalogCache.productChanged(conn, productId);
+                }
+            } catch (SQLException ex) {
+                System.err.println("Could not refresh stock in catalog cache: " + ex.getMessage());
+            }
+        });
+    }
+
+    /** The order already placed under this checkout's key, or -1. */
+    private int existingOrder(Connection conn) throws SQLException {
+        try (PreparedStatement ps = prepare(conn, EXISTING_SQL)) {
+            ps.setString(1, idempotencyKey);
+            ps.setString(2, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt("order_id") : -1;
+            }
+        }
+    }
+
+    // ---------------------------------
+    // --- Budgets ---
+    // ---------------------------------
+
+    private void enter(Stage next, Consumer<Stage> progress) {
+        stage = next;
+        stageStart = System.nanoTime();
+        stageDeadline = Math.min(stageStart + TimeUnit.MILLISECONDS.toNanos(next.timeoutMillis), deadline);
+        progress.accept(next);
+    }
+
+    private void leave() throws SQLException {
+        leave(true);
+    }
+
+    // Records the stage's latency; enforce is false once nothing can be rolled back any more
+    private void leave(boolean enforce) throws SQLException {
+        long now = System.nanoTime();
+        stage.record(now - stageStart);
+        if (enforce && now > stageDeadline) {
+            throw new SQLTimeoutException("Stage " + stage + " overran its budget.");
+        }
+    }
+
+    private PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(sql);
+        ps.setQueryTimeout(secondsLeft());
+        return ps;
+    }
+
+    // Whole seconds left in the current stage (JDBC query timeouts are in seconds), at least 1
+    private int secondsLeft() throws SQLException {
+        long left = stageDeadline - System.nanoTime();
+        if (left <= 0) {
+            throw new SQLTimeoutException("Stage " + stage + " overran its budget.");
+        }
+        return (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(left + 999_999_999L));
+    }
+
+    // ---------------------------------
+    // --- Failures ---
+    // ---------------------------------
+
+    /** A stage ran out of time before the commit; everything was rolled back. */
+    @SuppressWarnings("serial")
+    public static class StageTimeoutException extends SQLTimeoutException {
+        public final Stage stage;
+
+        StageTimeoutException(Stage stage, Throwable cause) {
+            super("Checkout timed out while " + stage.label.toLowerCase() + ".", cause);
+            this.stage = stage;
+        }
+    }
+
+    /** A cart line that could not be reserved. */
+    public static final class Shortage {
+        public final int productId;
+        public final String name;
+        public final int requested;
+        public final int available;
+
+        Shortage(int productId, String name, int requested, int available) {
+            this.productId = productId;
+            this.name = name;
+            this.requested = requested;
+            this.available = available;
+        }
+    }
+
+    /** Checkout was rolled back because some lines exceed the stock left. */
+    @SuppressWarnings("serial")
+    public static class OutOfStockException extends SQLException {
+        private final List<Shortage> shortages;
+
+        OutOfStockException(List<Shortage> shortages) {
+            super(shortages.size() + " item(s) in the cart are out of stock.");
+            this.shortages = shortages;
+        }
+
+        public List<Shortage> getShortages() { return shortages; }
+    }
+}
@@ -0,0 +1,65 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * In-memory registry of checkout attempts by idempotency key. The first submission of a key
+ * starts the checkout; repeated submissions (a double click, a retry while MySQL is still
+ * working on the first one) get the same future back and never reach the database.
+ *
+ * Keys whose checkout failed are forgotten, so a retry runs again and relies on the unique
+ * orders.idempotency_key to find an order that did commit. Keys that produced an order are
+ * kept (the most recent {@link #MAX_COMPLETED}) so a late repeat still gets the original id.
+ */
+public class CheckoutRegistry {
+
+    public static final int MAX_COMPLETED = 256;
+
+    private static final Map<String, CompletableFuture<Integer>> ATTEMPTS =
+        new LinkedHashMap<String, CompletableFuture<Integer>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<Integer>> eldest) {
+                // Only settled attempts age out; an in-flight one must stay findable
+                return size() > MAX_COMPLETED && eldest.getValue().isDone();
+            }
+        };
+
+    private CheckoutRegistry() {}
+
+    /** A fresh key for one checkout attempt. */
+    public static String newKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Returns the checkout for key, starting it with checkout only if no attempt with this key
+     * is running or has already produced an order.
+     */
+    public static CompletableFuture<Integer> submit(String key, Supplier<CompletableFuture<Integer>> checkout) {
+        CompletableFuture<Integer> attempt;
+        synchronized (ATTEMPTS) {
+            CompletableFuture<Integer> existing = ATTEMPTS.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            attempt = new CompletableFuture<>();
+            ATTEMPTS.put(key, attempt);
+        }
+        checkout.get().whenComplete((orderId, error) -> {
+            if (error != null || orderId == null || orderId <= 0) {
+                // Nothing was ordered under this key; let the next submission try again
+                synchronized (ATTEMPTS) {
+                    ATTEMPTS.remove(key, attempt);
+                }
+            }
+            if (error != null) {
+                attempt.completeExceptionally(error);
+            } else {
+                attempt.complete(orderId);
+            }
+        });
+        return attempt;
+    }
+}
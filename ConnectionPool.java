@@ -0,0 +1,426 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small bounded JDBC connection pool used by {@link DBConnection}.
+ * Callers keep using try-with-resources: closing the returned Connection
+ * hands the physical connection back to the pool instead of dropping it.
+ */
+public class ConnectionPool {
+
+    // Connections used within this window are not re-validated on borrow
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_INTERVAL_MILLIS = 15_000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long maxWaitMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>(); // guarded by itself
+    private final Set<PooledConnection> active = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown = false;
+
+    // --- Statistics ---
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    private final AtomicLong statementEvictions = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password, int maxSize, int minIdle,
+                          long maxWaitMillis, long idleTimeoutMillis, long leakThresholdMillis,
+                          int statementCacheSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minIdle = minIdle;
+        this.maxWaitMillis = maxWaitMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+            HOUSEKEEPING_INTERVAL_MILLIS, HOUSEKEEPING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Borrows a connection, waiting at most maxWaitMillis for one to become free. */
+    public Connection borrow() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + maxWaitMillis
+                    + " ms waiting for a database connection (" + getStats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pc = takeValidIdleConnection();
+            if (pc == null) {
+                pc = new PooledConnection(DriverManager.getConnection(url, user, password));
+                createdCount.incrementAndGet();
+            }
+            pc.borrowedAt = System.currentTimeMillis();
+            pc.borrowStack = new Throwable("Connection borrowed by " + Thread.currentThread().getName());
+            pc.leakReported = false;
+            active.add(pc);
+
+            recordWait(System.nanoTime() - start);
+            return pc.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidIdleConnection() {
+        while (true) {
+            PooledConnection pc;
+            synchronized (idle) {
+                pc = idle.pollFirst();
+            }
+            if (pc == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - pc.lastReturnedAt < VALIDATION_BYPASS_MILLIS) {
+                return pc;
+            }
+            try {
+                if (pc.raw.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    return pc;
+                }
+            } catch (SQLException ignored) {
+                // Treated the same as a failed validation below
+            }
+            validationFailures.incrementAndGet();
+            closeQuietly(pc);
+        }
+    }
+
+    /** Called when a borrower closes its handle. */
+    private void release(PooledConnection pc) {
+        try {
+            active.remove(pc);
+            boolean reusable = !shutdown;
+            try {
+                if (pc.statements != null) {
+                    pc.statements.releaseAll();
+                }
+                if (!pc.raw.getAutoCommit()) {
+                    pc.raw.rollback();
+                    pc.raw.setAutoCommit(true);
+                }
+                if (pc.raw.isReadOnly()) {
+                    pc.raw.setReadOnly(false);
+                }
+                pc.raw.clearWarnings();
+            } catch (SQLException | RuntimeException ex) {
+                System.err.println("Discarding pooled connection after failed reset: " + ex);
+                reusable = false;
+            }
+
+            if (reusable) {
+                pc.lastReturnedAt = System.currentTimeMillis();
+                synchronized (idle) {
+                    idle.addFirst(pc);
+                }
+            } else {
+                closeQuietly(pc);
+            }
+        } finally {
+            // Whatever happened above, the slot goes back; otherwise the pool shrinks for good
+            permits.release();
+        }
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+
+        // 1. Evict connections that have been idle too long, keeping minIdle warm
+        synchronized (idle) {
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && idle.size() > minIdle) {
+                PooledConnection pc = it.next();
+                if (now - pc.lastReturnedAt > idleTimeoutMillis) {
+                    it.remove();
+                    evictedCount.incrementAndGet();
+                    closeQuietly(pc);
+                }
+            }
+        }
+
+        // 2. Open connections until minIdle are warm again. Each new connection holds a
+        //    permit while it is opened, so the pool never exceeds maxSize.
+        while (!shutdown && idleCount() < minIdle && permits.tryAcquire()) {
+            try {
+                PooledConnection pc = new PooledConnection(DriverManager.getConnection(url, user, password));
+                createdCount.incrementAndGet();
+                pc.lastReturnedAt = System.currentTimeMillis();
+                synchronized (idle) {
+                    idle.addLast(pc);
+                }
+            } catch (SQLException ex) {
+                System.err.println("Could not open an idle database connection: " + ex.getMessage());
+                break; // try again at the next run
+            } finally {
+                permits.release();
+            }
+        }
+
+        // 3. Report connections held longer than the leak threshold
+        for (PooledConnection pc : active) {
+            if (!pc.leakReported && now - pc.borrowedAt > leakThresholdMillis) {
+                pc.leakReported = true;
+                leakCount.incrementAndGet();
+                System.err.println("Possible connection leak: connection held for "
+                    + (now - pc.borrowedAt) + " ms. Borrowed at:");
+                pc.borrowStack.printStackTrace();
+            }
+        }
+    }
+
+    private int idleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        long prev;
+        do {
+            prev = maxWaitNanos.get();
+        } while (waitNanos > prev && !maxWaitNanos.compareAndSet(prev, waitNanos));
+    }
+
+    /** Closes idle connections and stops housekeeping; borrowed connections close on return. */
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        synchronized (idle) {
+            for (PooledConnection pc : idle) {
+                closeQuietly(pc);
+            }
+            idle.clear();
+        }
+    }
+
+    private static void closeQuietly(PooledConnection pc) {
+        if (pc.statements != null) {
+            pc.statements.clear();
+        }
+        try {
+            pc.raw.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(active.size(), idleCount(), maxSize, permits.getQueueLength(),
+            borrowCount.get(), totalWaitNanos.get(), maxWaitNanos.get(), timeoutCount.get(),
+            createdCount.get(), evictedCount.get(), validationFailures.get(), leakCount.get(),
+            statementHits.get(), statementMisses.get(), statementEvictions.get());
+    }
+
+    // ---------------------------------
+    // --- Pooled Connection Wrapper ---
+    // ---------------------------------
+
+    private final class PooledConnection {
+        final Connection raw;
+        final StatementCache statements; // null when statement caching is disabled
+        volatile long borrowedAt;
+        volatile long lastReturnedAt;
+        volatile Throwable borrowStack;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+            this.statements = statementCacheSize > 0
+                ? new StatementCache(raw, statementCacheSize, statementHits, statementMisses, statementEvictions)
+                : null;
+        }
+
+        /** Each borrow gets its own handle so a stale handle can never close someone else's borrow. */
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, new Handle(this));
+        }
+    }
+
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pc;
+        private boolean closed = false;
+
+        Handle(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pc.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pc.raw + (closed ? ", closed]" : "]");
+                default:
+                    if (closed) {
+                        throw new SQLException("Connection is closed");
+                    }
+                    if (pc.statements != null && isCacheablePrepare(method)) {
+                        int keys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                        return pc.statements.prepare((Connection) proxy, (String) args[0], keys);
+                    }
+                    try {
+                        return method.invoke(pc.raw, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    /** Only prepareStatement(String) and prepareStatement(String, int autoGeneratedKeys) are cached. */
+    private static boolean isCacheablePrepare(Method method) {
+        if (!method.getName().equals("prepareStatement")) {
+            return false;
+        }
+        Class<?>[] params = method.getParameterTypes();
+        return params.length == 1 || (params.length == 2 && params[1] == int.class);
+    }
+
+    // ---------------------------------
+    // --- Statistics Snapshot ---
+    // ---------------------------------
+
+    public static class Stats {
+        private final int active;
+        private final int idle;
+        private final int max;
+        private final int waiting;
+        private final long borrowCount;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long timeouts;
+        private final long created;
+        private final long evicted;
+        private final long validationFailures;
+        private final long leaks;
+        private final long statementHits;
+        private final long statementMisses;
+        private final long statementEvictions;
+
+        Stats(int active, int idle, int max, int waiting, long borrowCount, long totalWaitNanos,
+              long maxWaitNanos, long timeouts, long created, long evicted, long validationFailures, long leaks,
+              long statementHits, long statementMisses, long statementEvictions) {
+            this.active = active;
+            this.idle = idle;
+            this.max = max;
+            this.waiting = waiting;
+            this.borrowCount = borrowCount;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.timeouts = timeouts;
+            this.created = created;
+            this.evicted = evicted;
+            this.validationFailures = validationFailures;
+            this.leaks = leaks;
+            this.statementHits = statementHits;
+            this.statementMisses = statementMisses;
+            this.statementEvictions = statementEvictions;
+        }
+
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getMax() { return max; }
+        public int getWaiting() { return waiting; }
+        public long getBorrowCount() { return borrowCount; }
+        public long getTimeouts() { return timeouts; }
+        public long getCreated() { return created; }
+        public long getEvicted() { return evicted; }
+        public long getValidationFailures() { return validationFailures; }
+        public long getLeaks() { return leaks; }
+        public long getStatementHits() { return statementHits; }
+        public long getStatementMisses() { return statementMisses; }
+        public long getStatementEvictions() { return statementEvictions; }
+
+        public double getStatementHitRatio() {
+            long lookups = statementHits + statementMisses;
+            return lookups == 0 ? 0.0 : (double) statementHits / lookups;
+        }
+
+        public double getAverageWaitMillis() {
+            return borrowCount == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / borrowCount;
+        }
+
+        public double getMaxWaitMillis() {
+            return maxWaitNanos / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("active=%d, idle=%d, max=%d, waiting=%d, borrows=%d, avgWait=%.2fms, maxWait=%.2fms, "
+                    + "timeouts=%d, created=%d, evicted=%d, invalid=%d, leaks=%d, "
+                    + "stmtHits=%d, stmtMisses=%d, stmtEvictions=%d",
+                active, idle, max, waiting, borrowCount, getAverageWaitMillis(), getMaxWaitMillis(),
+                timeouts, created, evicted, validationFailures, leaks,
+                statementHits, statementMisses, statementEvictions);
+        }
+    }
+}
@@ -1,22 +1,95 @@
 
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class DBConnection {
 
-    private static final String URL = "jdbc:mysql://localhost:3306/sareestore";
-    private static final String USER = "root";
-    private static final String PASSWORD = ""; 
+    // useServerPrepStmts lets the per-connection statement cache skip server-side parsing on reuse;
+    // rewriteBatchedStatements sends a JDBC batch of inserts as one multi-row statement.
+    // All three can be overridden with -Dsareestore.db.url/user/password (e.g. an embedded test database).
+    private static final String URL = System.getProperty("sareestore.db.url",
+        "jdbc:mysql://localhost:3306/sareestore?useServerPrepStmts=true&rewriteBatchedStatements=true");
+    private static final String USER = System.getProperty("sareestore.db.user", "root");
+    private static final String PASSWORD = System.getProperty("sareestore.db.password", "");
 
+    // Pool sizing and timeouts
+    private static final int MAX_POOL_SIZE = 10;
+    private static final int MIN_IDLE = 2;
+    private static final long MAX_WAIT_MILLIS = 5_000;
+    private static final long IDLE_TIMEOUT_MILLIS = 5 * 60_000;
+    private static final long LEAK_THRESHOLD_MILLIS = 30_000;
+    private static final int STATEMENT_CACHE_SIZE = 64; // per connection
+
+    private static volatile ConnectionPool pool;
+    private static final List<Runnable> shutdownTasks = new CopyOnWriteArrayList<>();
+
+    /**
+     * Borrows a pooled connection. Closing it (e.g. via try-with-resources)
+     * returns it to the pool rather than tearing down the TCP session.
+     */
     public static Connection getConnection() throws SQLException {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            // This is the error if the MySQL Connector JAR is missing!
-            throw new SQLException("MySQL JDBC Driver not found", e); 
+        return getPool().borrow();
+    }
+
+    /**
+     * Runs the task on JVM exit while pooled connections are still available (e.g. to write
+     * out buffered changes), before the pool itself is shut down.
+     */
+    public static void beforeShutdown(Runnable task) {
+        shutdownTasks.add(task);
+    }
+
+    /**
+     * Makes a forward-only, read-only statement stream its rows instead of buffering the whole
+     * result. Connector/J only streams with a fetch size of Integer.MIN_VALUE (a positive size is
+     * ignored without useCursorFetch); other drivers keep their default.
+     */
+    public static void streamResults(Statement statement) throws SQLException {
+        if (URL.startsWith("jdbc:mysql:")) {
+            statement.setFetchSize(Integer.MIN_VALUE);
+        }
+    }
+
+    /** Current pool statistics (active, idle, wait times, leaks, statement cache hits/misses). */
+    public static ConnectionPool.Stats getPoolStats() throws SQLException {
+        return getPool().getStats();
+    }
+
+    private static ConnectionPool getPool() throws SQLException {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DBConnection.class) {
+                p = pool;
+                if (p == null) {
+                    if (URL.startsWith("jdbc:mysql:")) {
+                        try {
+                            Class.forName("com.mysql.cj.jdbc.Driver");
+                        } catch (ClassNotFoundException e) {
+                            // This is the error if the MySQL Connector JAR is missing!
+                            throw new SQLException("MySQL JDBC Driver not found", e);
+                        }
+                    }
+                    p = new ConnectionPool(URL, USER, PASSWORD, MAX_POOL_SIZE, MIN_IDLE,
+                        MAX_WAIT_MILLIS, IDLE_TIMEOUT_MILLIS, LEAK_THRESHOLD_MILLIS, STATEMENT_CACHE_SIZE);
+                    ConnectionPool created = p;
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                        for (Runnable task : shutdownTasks) {
+                            try {
+                                task.run();
+                            } catch (RuntimeException ex) {
+                                System.err.println("Shutdown task failed: " + ex.getMessage());
+                            }
+                        }
+                        created.shutdown();
+                    }, "db-pool-shutdown"));
+                    pool = p;
+                }
+            }
         }
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        return p;
     }
-}
\ No newline at end of file
+}
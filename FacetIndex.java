@@ -0,0 +1,323 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * In-memory facet engine for the home page filters (category, price band, in stock).
+ *
+ * Every facet value keeps a bitset of the products that have it, so a filter combination is a
+ * few bitwise ORs (within a facet) and ANDs (across facets), and each facet count is the
+ * popcount of one more AND. Nothing goes to the database on a filter click.
+ *
+ * Counts are "disjunctive": the count next to a value is what the results would be if that
+ * value were ticked too, given the selections in the other facets.
+ *
+ * Built from the {@link CatalogCache} snapshot and kept current through its listener, like
+ * {@link SearchIndex}.
+ */
+public class FacetIndex {
+
+    /** Fixed price bands, in rupees; lower bound inclusive, upper bound exclusive. */
+    public enum PriceBand {
+        UNDER_2000("Under ₹2,000", 0, 2_000),
+        FROM_2000("₹2,000 - ₹5,000", 2_000, 5_000),
+        FROM_5000("₹5,000 - ₹10,000", 5_000, 10_000),
+        FROM_10000("₹10,000 - ₹20,000", 10_000, 20_000),
+        FROM_20000("₹20,000 & above", 20_000, Double.MAX_VALUE);
+
+        public final String label;
+        private final double min;
+        private final double max;
+
+        PriceBand(String label, double min, double max) {
+            this.label = label;
+            this.min = min;
+            this.max = max;
+        }
+
+        static PriceBand of(double price) {
+            for (PriceBand band : values()) {
+                if (price >= band.min && price < band.max) {
+                    return band;
+                }
+            }
+            return UNDER_2000; // Negative prices should not exist; keep them visible anyway
+        }
+    }
+
+    /** The shopper's selections; an empty set means "any" for that facet. */
+    public static final class Filter {
+        public final Set<String> categories = new TreeSet<>();
+        public final Set<PriceBand> priceBands = EnumSet.noneOf(PriceBand.class);
+        public boolean inStockOnly = false;
+
+        public boolean isEmpty() {
+            return categories.isEmpty() && priceBands.isEmpty() && !inStockOnly;
+        }
+    }
+
+    /** Matching products (by product id) and the count for every facet value. */
+    public static final class Result {
+        public final List<Product> products;
+        public final Map<String, Integer> categoryCounts;
+        public final Map<PriceBand, Integer> priceBandCounts;
+        public final int inStockCount;
+
+        Result(List<Product> products, Map<String, Integer> categoryCounts,
+               Map<PriceBand, Integer> priceBandCounts, int inStockCount) {
+            this.products = products;
+            this.categoryCounts = categoryCounts;
+            this.priceBandCounts = priceBandCounts;
+            this.inStockCount = inStockCount;
+        }
+    }
+
+    private static volatile FacetIndex instance;
+    private static CompletableFuture<FacetIndex> loading; // guarded by FacetIndex.class
+
+    // --- Documents (slots are reused after deletes) ---
+    private Product[] docs = new Product[16];
+    private final List<Integer> freeSlots = new ArrayList<>();
+    private final Map<Integer, Integer> slotByProductId = new HashMap<>();
+    private final BitSet live = new BitSet();
+
+    // --- One bitset per facet value; categories by CatalogSnapshot.categoryKey, like the shelves ---
+    private final Map<String, BitSet> byCategory = new HashMap<>();
+    private final Map<String, String> categoryLabels = new HashMap<>(); // key -> name shown on the checkbox
+    private final Map<PriceBand, BitSet> byPriceBand = new EnumMap<>(PriceBand.class);
+    private final BitSet inStock = new BitSet();
+
+    private FacetIndex() {
+        for (PriceBand band : PriceBand.values()) {
+            byPriceBand.put(band, new BitSet());
+        }
+    }
+
+    // ---------------------------------
+    // --- Shared Instance ---
+    // ---------------------------------
+
+    /** The shared index, building it from the catalog snapshot off the EDT on first use. */
+    public static synchronized CompletableFuture<FacetIndex> getAsync() {
+        FacetIndex current = instance;
+        if (current != null) {
+            return CompletableFuture.completedFuture(current);
+        }
+        if (loading == null) {
+            loading = CatalogCache.getAsync().thenApply(snapshot -> {
+                FacetIndex index = build(snapshot.getProducts());
+                instance = index;
+                return index;
+            });
+            loading.whenComplete((index, error) -> {
+                synchronized (FacetIndex.class) {
+                    loading = null;
+                }
+            });
+        }
+        return loading;
+    }
+
+    /** The shared index if it has been built, else null. */
+    public static FacetIndex getIfReady() {
+        return instance;
+    }
+
+    public static FacetIndex build(List<Product> products) {
+        FacetIndex index = new FacetIndex();
+        for (Product p : products) {
+            index.add(p);
+        }
+        return index;
+    }
+
+    // Keeps the shared index in step with the catalog
+    static {
+        CatalogCache.addListener(new CatalogCache.Listener() {
+            @Override
+            public void catalogLoaded(CatalogSnapshot snapshot) {
+                if (instance != null) {
+                    instance = build(snapshot.getProducts());
+                }
+            }
+
+            @Override
+            public void productChanged(Product product) {
+                FacetIndex current = instance;
+                if (current != null) {
+                    current.update(product);
+                }
+            }
+
+            @Override
+            public void productRemoved(int productId) {
+                FacetIndex current = instance;
+                if (current != null) {
+                    current.remove(productId);
+                }
+            }
+        });
+    }
+
+    // ---------------------------------
+    // --- Queries ---
+    // ---------------------------------
+
+    /** Products matching the filter, ordered by product id, with counts for every facet value. */
+    public synchronized Result query(Filter filter) {
+        BitSet categoryMask = categoryMask(filter);
+        BitSet priceMask = priceMask(filter);
+        BitSet stockMask = filter.inStockOnly ? inStock : live;
+
+        // Each facet's counts apply the other facets' selections, not its own
+        BitSet scratch = new BitSet(docs.length);
+        Map<String, Integer> categoryCounts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, BitSet> entry : byCategory.entrySet()) {
+            categoryCounts.put(categoryLabels.get(entry.getKey()), countAnd(scratch, entry.getValue(), priceMask, stockMask));
+        }
+        Map<PriceBand, Integer> priceBandCounts = new EnumMap<>(PriceBand.class);
+        for (Map.Entry<PriceBand, BitSet> entry : byPriceBand.entrySet()) {
+            priceBandCounts.put(entry.getKey(), countAnd(scratch, entry.getValue(), categoryMask, stockMask));
+        }
+        int inStockCount = countAnd(scratch, inStock, categoryMask, priceMask);
+
+        BitSet matches = matching(categoryMask, priceMask, stockMask);
+        List<Product> products = new ArrayList<>(matches.cardinality());
+        for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+            products.add(docs[slot]);
+        }
+        products.sort(Comparator.comparingInt(Product::getId));
+        return new Result(Collections.unmodifiableList(products), categoryCounts, priceBandCounts, inStockCount);
+    }
+
+    /**
+     * Product ids passing the filter, as a bitset indexed by product id, so a search can skip
+     * the rest before it applies its result limit.
+     */
+    public synchronized BitSet matchingIds(Filter filter) {
+        BitSet matches = matching(categoryMask(filter), priceMask(filter), filter.inStockOnly ? inStock : live);
+        BitSet ids = new BitSet();
+        for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+            ids.set(docs[slot].getId());
+        }
+        return ids;
+    }
+
+    public synchronized int size() {
+        return slotByProductId.size();
+    }
+
+    // OR of the ticked categories, or every product when none is ticked
+    private BitSet categoryMask(Filter filter) {
+        if (filter.categories.isEmpty()) {
+            return live;
+        }
+        BitSet mask = new BitSet(docs.length);
+        for (String category : filter.categories) {
+            BitSet bits = byCategory.get(categoryKeyOf(category));
+            if (bits != null) {
+                mask.or(bits);
+            }
+        }
+        return mask;
+    }
+
+    private BitSet priceMask(Filter filter) {
+        if (filter.priceBands.isEmpty()) {
+            return live;
+        }
+        BitSet mask = new BitSet(docs.length);
+        for (PriceBand band : filter.priceBands) {
+            mask.or(byPriceBand.get(band));
+        }
+        return mask;
+    }
+
+    private static BitSet matching(BitSet a, BitSet b, BitSet c) {
+        BitSet result = (BitSet) a.clone();
+        result.and(b);
+        result.and(c);
+        return result;
+    }
+
+    // Popcount of a & b & c, reusing one scratch bitset
+    private static int countAnd(BitSet scratch, BitSet a, BitSet b, BitSet c) {
+        scratch.clear();
+        scratch.or(a);
+        scratch.and(b);
+        scratch.and(c);
+        return scratch.cardinality();
+    }
+
+    // ---------------------------------
+    // --- Incremental Updates ---
+    // ---------------------------------
+
+    /** Adds or re-indexes a product (price, category or stock may have changed). */
+    public synchronized void update(Product product) {
+        remove(product.getId());
+        add(product);
+    }
+
+    /** Drops a product from every facet. */
+    public synchronized void remove(int productId) {
+        Integer slot = slotByProductId.remove(productId);
+        if (slot == null) {
+            return;
+        }
+        Product old = docs[slot];
+        String key = categoryKeyOf(old.getCategory());
+        BitSet bits = byCategory.get(key);
+        if (bits != null) {
+            bits.clear(slot);
+            if (bits.isEmpty()) {
+                byCategory.remove(key); // Last product of the category is gone
+                categoryLabels.remove(key);
+            }
+        }
+        byPriceBand.get(PriceBand.of(old.getPrice())).clear(slot);
+        inStock.clear(slot);
+        live.clear(slot);
+        docs[slot] = null;
+        freeSlots.add(slot);
+    }
+
+    private void add(Product product) {
+        int slot = freeSlots.isEmpty() ? slotByProductId.size() : freeSlots.remove(freeSlots.size() - 1);
+        if (slot >= docs.length) {
+            docs = Arrays.copyOf(docs, Math.max(slot + 1, docs.length * 2));
+        }
+        docs[slot] = product;
+        slotByProductId.put(product.getId(), slot);
+
+        String key = categoryKeyOf(product.getCategory());
+        byCategory.computeIfAbsent(key, k -> new BitSet()).set(slot);
+        categoryLabels.putIfAbsent(key, labelOf(product.getCategory()));
+        byPriceBand.get(PriceBand.of(product.getPrice())).set(slot);
+        if (product.getStockQuantity() > 0) {
+            inStock.set(slot);
+        }
+        live.set(slot);
+    }
+
+    // Products without a category are listed under "Other"
+    private static String categoryKeyOf(String category) {
+        return CatalogSnapshot.categoryKey(category == null || category.trim().isEmpty() ? "Other" : category);
+    }
+
+    // Not trimmed: a label must map back to exactly one key
+    private static String labelOf(String category) {
+        return category == null || category.trim().isEmpty() ? "Other" : category;
+    }
+}
@@ -169,7 +169,6 @@ public class FeedbackPage extends JFrame {
             // Tell the parent AccountPage to refresh the order list
             if (parentPage != null) {
                 parentPage.displayOrderHistory(); 
-                parentPage.setVisible(true); // Ensure AccountPage is visible again
             }
             
             dispose(); 
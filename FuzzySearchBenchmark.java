@@ -0,0 +1,111 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Measures how long the {@link FuzzyTermIndex} trie walk takes as the term dictionary grows.
+ * Builds synthetic catalogs (no database needed) whose product names mix real saree words
+ * with generated words, so each step multiplies the dictionary size, then times the edit
+ * distance lookup of the same misspelled words against each dictionary. Postings, scoring
+ * and ranking are left out, so only the fuzzy lookup itself is measured.
+ *
+ * Usage: java FuzzySearchBenchmark [products...]
+ * e.g. java FuzzySearchBenchmark 1000 10000 100000
+ */
+public class FuzzySearchBenchmark {
+
+    private static final String[] FABRICS = {"Kanjivaram", "Banarasi", "Georgette", "Chiffon", "Organza",
+        "Chanderi", "Patola", "Paithani", "Bandhani", "Tussar", "Pochampally", "Sambalpuri"};
+    private static final String[] STYLES = {"Silk", "Cotton", "Zari", "Handloom", "Printed", "Embroidered",
+        "Woven", "Designer", "Bridal", "Festive"};
+    private static final String[] COLOURS = {"Red", "Maroon", "Green", "Mustard", "Pink", "Royal Blue",
+        "Peach", "Ivory", "Black", "Lavender"};
+    private static final String[] SYLLABLES = {"ka", "ma", "ra", "vi", "sh", "an", "de", "pu", "ta", "li",
+        "ne", "ro", "su", "ja", "bo", "ki"};
+
+    // Misspellings customers actually type, each one or two edits from a catalog word
+    private static final String[] WORDS = {"kanjeevaram", "banarsi", "georgete", "chifon", "organja",
+        "paithni", "sillk", "mustrd"};
+
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int ROUNDS = 1000;
+
+    public static void main(String[] args) {
+        int[] sizes = {1_000, 10_000, 100_000};
+        if (args.length > 0) {
+            sizes = Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        }
+
+        System.out.printf("%10s %10s %10s %10s %10s %8s%n", "products", "terms", "build ms", "p50 ms", "p99 ms", "matches");
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int productCount) {
+        List<Product> products = syntheticCatalog(productCount, new Random(42));
+
+        // The same dictionary SearchIndex feeds its FuzzyTermIndex: every distinct indexed word
+        Set<String> terms = new HashSet<>();
+        for (Product p : products) {
+            terms.addAll(SearchIndex.tokenize(p.getName()));
+            terms.addAll(SearchIndex.tokenize(p.getCategory()));
+            terms.addAll(SearchIndex.tokenize(p.getDescription()));
+        }
+        long buildStart = System.nanoTime();
+        FuzzyTermIndex index = new FuzzyTermIndex();
+        for (String term : terms) {
+            index.add(term);
+        }
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+        int[] matches = {0};
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (String word : WORDS) {
+                index.search(word, FuzzyTermIndex.maxDistanceFor(word.length()), (term, distance) -> matches[0]++);
+            }
+        }
+
+        long[] timings = new long[ROUNDS * WORDS.length];
+        int n = 0;
+        matches[0] = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (String word : WORDS) {
+                int maxDistance = FuzzyTermIndex.maxDistanceFor(word.length());
+                long start = System.nanoTime();
+                index.search(word, maxDistance, (term, distance) -> matches[0]++);
+                timings[n++] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(timings);
+
+        System.out.printf("%10d %10d %10d %10.3f %10.3f %8d%n", productCount, index.size(), buildMillis,
+            timings[timings.length / 2] / 1e6, timings[timings.length * 99 / 100] / 1e6, matches[0] / ROUNDS);
+    }
+
+    // Names like "Banarasi Zari Maroon Saree Kavirode"; the generated word grows the dictionary
+    private static List<Product> syntheticCatalog(int count, Random random) {
+        List<Product> products = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            String fabric = FABRICS[random.nextInt(FABRICS.length)];
+            String name = fabric + " " + STYLES[random.nextInt(STYLES.length)] + " "
+                + COLOURS[random.nextInt(COLOURS.length)] + " Saree " + generatedWord(random);
+            String description = "Handpicked " + fabric + " saree with " + generatedWord(random) + " border";
+            products.add(new Product(id, name, 1000 + random.nextInt(20000), fabric, "images/" + id + ".jpg",
+                description, random.nextInt(20)));
+        }
+        return products;
+    }
+
+    private static String generatedWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int syllables = 3 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,162 @@
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Finds dictionary terms within a small edit distance of a misspelled query word
+ * ("kanjeevaram" finds "kanjivaram", "banarsi" finds "banarasi").
+ *
+ * Terms are stored in a trie and the query walks it with one Levenshtein row per trie depth,
+ * which behaves like a Levenshtein automaton run over the dictionary: a branch is abandoned as
+ * soon as every entry in its row exceeds the allowed distance. The work therefore depends on
+ * the query word and the distance rather than on how many terms the dictionary holds.
+ * Nodes are parallel arrays rather than objects to keep large dictionaries compact.
+ *
+ * Not thread-safe; {@link SearchIndex} calls it under its own lock.
+ */
+public class FuzzyTermIndex {
+
+    private static final int ROOT = 0;
+
+    // --- Trie nodes: label, first child, next sibling, term ending here (or null) ---
+    private char[] labels = new char[256];
+    private int[] firstChild = new int[256];
+    private int[] nextSibling = new int[256];
+    private String[] termAt = new String[256];
+    private int nodeCount = 0;
+    private int termCount = 0;
+
+    // --- Query scratch space ---
+    private int[] stackNodes = new int[64];
+    private int[] stackDepths = new int[64];
+    private int[][] rows = new int[0][];
+
+    public FuzzyTermIndex() {
+        newNode('\0'); // Root
+    }
+
+    /** Longest distance tolerated for a word of this length: none for very short words. */
+    public static int maxDistanceFor(int length) {
+        if (length < 4) {
+            return 0;
+        }
+        return length < 7 ? 1 : 2;
+    }
+
+    /** Adds a term; adding a term already present does nothing. */
+    public void add(String term) {
+        int node = ROOT;
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            int child = childWith(node, c);
+            if (child < 0) {
+                child = newNode(c);
+                nextSibling[child] = firstChild[node];
+                firstChild[node] = child;
+            }
+            node = child;
+        }
+        if (termAt[node] == null) {
+            termAt[node] = term;
+            termCount++;
+        }
+    }
+
+    /** Removes a term; the trie nodes stay and are reused if the term comes back. */
+    public void remove(String term) {
+        int node = ROOT;
+        for (int i = 0; i < term.length() && node >= 0; i++) {
+            node = childWith(node, term.charAt(i));
+        }
+        if (node >= 0 && termAt[node] != null) {
+            termAt[node] = null;
+            termCount--;
+        }
+    }
+
+    public int size() { return termCount; }
+
+    /**
+     * Calls the consumer with every term within maxDistance of word, and its distance. The
+     * word itself is reported at distance 0 if present.
+     */
+    public void search(String word, int maxDistance, ObjIntConsumer<String> consumer) {
+        int m = word.length();
+        int maxDepth = m + maxDistance; // Longer terms cannot be within range
+        if (rows.length <= maxDepth || rows[0].length <= m) {
+            rows = new int[maxDepth + 1][m + 1];
+        }
+        int[] first = rows[0];
+        for (int j = 0; j <= m; j++) {
+            first[j] = j;
+        }
+
+        int top = 0;
+        for (int child = firstChild[ROOT]; child >= 0; child = nextSibling[child]) {
+            top = push(top, child, 1);
+        }
+        while (top > 0) {
+            top--;
+            int node = stackNodes[top];
+            int depth = stackDepths[top];
+
+            // Row for this node from its parent's row, which the depth-first order keeps intact
+            int[] prev = rows[depth - 1];
+            int[] row = rows[depth];
+            char c = labels[node];
+            row[0] = depth;
+            int best = depth;
+            for (int j = 1; j <= m; j++) {
+                int cost = word.charAt(j - 1) == c ? 0 : 1;
+                int d = Math.min(Math.min(row[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                row[j] = d;
+                if (d < best) {
+                    best = d;
+                }
+            }
+
+            if (termAt[node] != null && row[m] <= maxDistance) {
+                consumer.accept(termAt[node], row[m]);
+            }
+            if (best > maxDistance || depth == maxDepth) {
+                continue; // No extension of this prefix can come back within range
+            }
+            for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                top = push(top, child, depth + 1);
+            }
+        }
+    }
+
+    private int push(int top, int node, int depth) {
+        if (top == stackNodes.length) {
+            stackNodes = Arrays.copyOf(stackNodes, top * 2);
+            stackDepths = Arrays.copyOf(stackDepths, top * 2);
+        }
+        stackNodes[top] = node;
+        stackDepths[top] = depth;
+        return top + 1;
+    }
+
+    private int childWith(int node, char c) {
+        for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+            if (labels[child] == c) {
+                return child;
+            }
+        }
+        return -1;
+    }
+
+    private int newNode(char label) {
+        if (nodeCount == labels.length) {
+            int capacity = nodeCount * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            termAt = Arrays.copyOf(termAt, capacity);
+        }
+        int node = nodeCount++;
+        labels[node] = label;
+        firstChild[node] = -1;
+        nextSibling[node] = -1;
+        return node;
+    }
+}
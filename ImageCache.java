@@ -0,0 +1,185 @@
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of pre-scaled product images, keyed by (imagePath, width, height).
+ *
+ * Recently used thumbnails are held strongly in an LRU bounded by pixel bytes
+ * (1/8 of the max heap, capped at 64 MB). Images evicted from the LRU are kept
+ * behind SoftReferences, so they can still be reused until the GC needs the memory.
+ */
+public class ImageCache {
+
+    private static final long MAX_BYTES = Math.min(64L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 8);
+
+    private static final LinkedHashMap<Key, BufferedImage> strong = new LinkedHashMap<>(64, 0.75f, true);
+    private static final Map<Key, SoftReference<BufferedImage>> soft = new HashMap<>();
+    private static long strongBytes = 0; // guarded by ImageCache.class
+
+    // --- Metrics ---
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong softHits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    private ImageCache() {
+    }
+
+    /**
+     * Returns the image at imagePath scaled to width x height, decoding and scaling it
+     * only on a cache miss. Returns null if the file is missing or cannot be decoded.
+     */
+    public static BufferedImage getScaled(String imagePath, int width, int height) {
+        if (imagePath == null || imagePath.isEmpty()) {
+            return null;
+        }
+        Key key = new Key(imagePath, width, height);
+        BufferedImage cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Decode outside the lock so other cards are not held up by a slow file
+        misses.incrementAndGet();
+        BufferedImage scaled;
+        try {
+            BufferedImage source = ImageIO.read(new File(imagePath));
+            if (source == null) {
+                System.err.println("Unsupported image format: " + imagePath);
+                return null;
+            }
+            // Stored renditions are already the right size
+            scaled = source.getWidth() == width && source.getHeight() == height
+                ? source : scale(source, width, height);
+        } catch (IOException e) {
+            System.err.println("Error loading image " + imagePath + ": " + e.getMessage());
+            return null;
+        }
+        put(key, scaled);
+        return scaled;
+    }
+
+    /** Returns the cached image without loading anything; null on a miss. */
+    public static BufferedImage peek(String imagePath, int width, int height) {
+        return imagePath == null ? null : lookup(new Key(imagePath, width, height));
+    }
+
+    private static synchronized BufferedImage lookup(Key key) {
+        BufferedImage img = strong.get(key);
+        if (img != null) {
+            hits.incrementAndGet();
+            return img;
+        }
+        SoftReference<BufferedImage> ref = soft.remove(key);
+        img = ref != null ? ref.get() : null;
+        if (img != null) {
+            // Promote back into the LRU
+            softHits.incrementAndGet();
+            putStrong(key, img);
+        }
+        return img;
+    }
+
+    static synchronized void put(Key key, BufferedImage img) {
+        soft.remove(key);
+        putStrong(key, img);
+    }
+
+    private static void putStrong(Key key, BufferedImage img) {
+        BufferedImage previous = strong.put(key, img);
+        if (previous != null) {
+            strongBytes -= bytesOf(previous);
+        }
+        strongBytes += bytesOf(img);
+
+        Iterator<Map.Entry<Key, BufferedImage>> it = strong.entrySet().iterator();
+        while (strongBytes > MAX_BYTES && it.hasNext()) {
+            Map.Entry<Key, BufferedImage> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue; // Never evict the image we are about to return
+            }
+            it.remove();
+            strongBytes -= bytesOf(eldest.getValue());
+            soft.put(eldest.getKey(), new SoftReference<>(eldest.getValue()));
+            evictions.incrementAndGet();
+        }
+        if (soft.size() > strong.size() * 4 + 256) {
+            soft.values().removeIf(ref -> ref.get() == null);
+        }
+    }
+
+    private static long bytesOf(BufferedImage img) {
+        return (long) img.getWidth() * img.getHeight() * 4;
+    }
+
+    /**
+     * High-quality downscale: halves the image with bilinear filtering until it is close to
+     * the target, then does a final bilinear pass. Comparable to SCALE_SMOOTH, much cheaper.
+     */
+    public static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+
+        do {
+            w = w / 2 >= width ? w / 2 : width;
+            h = h / 2 >= height ? h / 2 : height;
+
+            BufferedImage step = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = step.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, w, h, null);
+            g.dispose();
+            current = step;
+        } while (w != width || h != height);
+
+        return current;
+    }
+
+    public static String getStats() {
+        synchronized (ImageCache.class) {
+            return "hits=" + hits.get() + ", softHits=" + softHits.get() + ", misses=" + misses.get()
+                + ", evictions=" + evictions.get() + ", entries=" + strong.size()
+                + ", bytes=" + strongBytes + "/" + MAX_BYTES;
+        }
+    }
+
+    // Cache key: one entry per image path and target size
+    static final class Key {
+        final String path;
+        final int width;
+        final int height;
+
+        Key(String path, int width, int height) {
+            this.path = path;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return width == other.width && height == other.height && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, width, height);
+        }
+    }
+}
@@ -2,7 +2,6 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -122,39 +121,48 @@ public class ManageProductsPage extends JFrame {
     
     // --- Logic Methods ---
 
-    /** Fetches all products from the Products table and populates the JTable. */
+    /** Fetches all products from the Products table (off the EDT) and populates the JTable. */
     public void loadProducts() {
         tableModel.setRowCount(0);
         productIds.clear();
+        tableModel.addRow(new Object[]{"", "Loading products...", "", "", "", "", "", ""});
         
         String sql = "SELECT product_id, name, category, price, stock_quantity, image_path FROM Products ORDER BY product_id";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-            
-            while (rs.next()) {
-                int id = rs.getInt("product_id");
-                
-                // Store the ID corresponding to the row
-                productIds.add(id);
-
-                tableModel.addRow(new Object[]{
-                    id, 
-                    rs.getString("name"), 
-                    rs.getString("category"),
-                    String.format("%.2f", rs.getDouble("price")), 
-                    rs.getInt("stock_quantity"),
-                    rs.getString("image_path"),
-                    "Edit", // Button simulation
-                    "Delete" // Button simulation
-                });
-            }
-            
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error loading products: " + ex.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
-        }
+        AsyncDataAccess.onEdt(AsyncDataAccess.supply(conn -> {
+                List<Object[]> rows = new ArrayList<>();
+                try (PreparedStatement pstmt = conn.prepareStatement(sql);
+                     ResultSet rs = pstmt.executeQuery()) {
+                    
+                    while (rs.next()) {
+                        rows.add(new Object[]{
+                            rs.getInt("product_id"), 
+                            rs.getString("name"), 
+                            rs.getString("category"),
+                            String.format("%.2f", rs.getDouble("price")), 
+                            rs.getInt("stock_quantity"),
+                            rs.getString("image_path"),
+                            "Edit", // Button simulation
+                            "Delete" // Button simulation
+                        });
+                    }
+                }
+                return rows;
+            }),
+            rows -> {
+                tableModel.setRowCount(0);
+                productIds.clear();
+                for (Object[] row : rows) {
+                    // Store the ID corresponding to the row
+                    productIds.add((Integer) row[0]);
+                    tableModel.addRow(row);
+                }
+            },
+            error -> {
+                tableModel.setRowCount(0);
+                JOptionPane.showMessageDialog(this, "Error loading products: " + error.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+                error.printStackTrace();
+            });
     }
     
     /** Opens a dialog box to allow the admin to edit product details. */
@@ -203,7 +211,7 @@ public class ManageProductsPage extends JFrame {
                 int newStock = Integer.parseInt(stockField.getText().trim());
                 String newImagePath = imagePathField.getText().trim();
 
-                updateProduct(productId, newName, newCategory, newPrice, newStock, newImagePath);
+                updateProduct(productId, newName, newCategory, newPrice, newStock, newImagePath, imagePath);
                 
             } catch (NumberFormatException e) {
                 JOptionPane.showMessageDialog(this, "Price and Stock must be valid numbers.", "Input Error", JOptionPane.ERROR_MESSAGE);
@@ -211,33 +219,44 @@ public class ManageProductsPage extends JFrame {
         }
     }
 
-    /** Updates the product details in the database. */
-    private void updateProduct(int productId, String name, String category, double price, int stock, String imagePath) {
-        String sql = "UPDATE Products SET name=?, category=?, price=?, stock_quantity=?, image_path=? WHERE product_id=?";
-        
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            // ... (parameters remain correct) ...
-            pstmt.setString(1, name);
-            pstmt.setString(2, category);
-            pstmt.setDouble(3, price);
-            pstmt.setInt(4, stock);
-            pstmt.setString(5, imagePath);
-            pstmt.setInt(6, productId);
-            
-            int rowsAffected = pstmt.executeUpdate();
-            
-            if (rowsAffected > 0) {
-                JOptionPane.showMessageDialog(this, "Product updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadProducts(); // Reload the table to show updated data
-            }
-            
-        } catch (SQLException ex) {
-            // ... (error handling remains correct) ...
-            JOptionPane.showMessageDialog(this, "Error updating product: " + ex.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
-        }
+    /**
+     * Updates the product details in the database. Thumbnails are regenerated only when the
+     * image path changed, and thumbnail_key is only written when that produced a new key.
+     */
+    private void updateProduct(int productId, String name, String category, double price, int stock,
+                               String imagePath, String oldImagePath) {
+        AsyncDataAccess.onEdt(AsyncDataAccess.supply(conn -> {
+                String thumbnailKey = imagePath.equals(oldImagePath) ? null : ThumbnailStore.generateOrNull(imagePath);
+                String sql = "UPDATE Products SET name=?, category=?, price=?, stock_quantity=?, image_path=?"
+                    + (thumbnailKey != null ? ", thumbnail_key=?" : "") + " WHERE product_id=?";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    int index = 1;
+                    pstmt.setString(index++, name);
+                    pstmt.setString(index++, category);
+                    pstmt.setDouble(index++, price);
+                    pstmt.setInt(index++, stock);
+                    pstmt.setString(index++, imagePath);
+                    if (thumbnailKey != null) {
+                        pstmt.setString(index++, thumbnailKey);
+                    }
+                    pstmt.setInt(index, productId);
+                    int rows = pstmt.executeUpdate();
+                    if (rows > 0) {
+                        CatalogCache.productChanged(conn, productId);
+                    }
+                    return rows;
+                }
+            }),
+            rowsAffected -> {
+                if (rowsAffected > 0) {
+                    JOptionPane.showMessageDialog(this, "Product updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    loadProducts(); // Reload the table to show updated data
+                }
+            },
+            error -> {
+                JOptionPane.showMessageDialog(this, "Error updating product: " + error.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+                error.printStackTrace();
+            });
     }
     
     /** Deletes a product from the database. */
@@ -249,25 +268,29 @@ public class ManageProductsPage extends JFrame {
         if (dialogResult == JOptionPane.YES_OPTION) {
             String sql = "DELETE FROM Products WHERE product_id=?";
             
-            try (Connection conn = DBConnection.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                
-                // ... (logic remains correct) ...
-                pstmt.setInt(1, productId);
-                int rowsAffected = pstmt.executeUpdate();
-                
-                if (rowsAffected > 0) {
-                    JOptionPane.showMessageDialog(this, "Product deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    loadProducts(); // Reload the table
-                } else {
-                    JOptionPane.showMessageDialog(this, "Product not found.", "Error", JOptionPane.ERROR_MESSAGE);
-                }
-                
-            } catch (SQLException ex) {
-                // Handle FK constraint errors (e.g., if product is in a cart or order)
-                JOptionPane.showMessageDialog(this, "Error deleting product. Check if it's linked to an Order or Cart: " + ex.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
-                ex.printStackTrace();
-            }
+            AsyncDataAccess.onEdt(AsyncDataAccess.supply(conn -> {
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setInt(1, productId);
+                        int rows = pstmt.executeUpdate();
+                        if (rows > 0) {
+                            CatalogCache.productRemoved(productId);
+                        }
+                        return rows;
+                    }
+                }),
+                rowsAffected -> {
+                    if (rowsAffected > 0) {
+                        JOptionPane.showMessageDialog(this, "Product deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                        loadProducts(); // Reload the table
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Product not found.", "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                },
+                error -> {
+                    // Handle FK constraint errors (e.g., if product is in a cart or order)
+                    JOptionPane.showMessageDialog(this, "Error deleting product. Check if it's linked to an Order or Cart: " + error.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+                    error.printStackTrace();
+                });
         }
     }
 
@@ -4,10 +4,12 @@ import javax.swing.border.TitledBorder;
 import java.awt.*;
 import java.sql.*;
 import java.text.DecimalFormat;
+import java.util.concurrent.CompletableFuture;
 
 @SuppressWarnings("serial")
-public class PaymentPage extends JFrame {
+public class PaymentPage extends JPanel implements StorePage {
 
+    private final StoreWindow window;
     private final String username;
     private double subtotalPrice = 0.0; 
 
@@ -50,21 +52,26 @@ public class PaymentPage extends JFrame {
     private final JTextField cvvField = new JTextField(5);
     private final JTextField expDateField = new JTextField(5);
 
+    private final JButton placeOrderBtn = new JButton("Place Order");
+
+    // Idempotency key of this checkout; kept across retries until an order is placed
+    private String checkoutKey = CheckoutRegistry.newKey();
+    private CompletableFuture<Integer> pendingCheckout;
+    private final JProgressBar checkoutProgress = new JProgressBar(0, CheckoutPipeline.Stage.values().length);
+
     // Decimal formatter for consistent currency display
     private final DecimalFormat df = new DecimalFormat("₹#,##0.00");
 
     // CONSTRUCTOR
-    public PaymentPage(String username, double subtotalPriceFromCart) {
-        this.username = username;
+    public PaymentPage(StoreWindow window, double subtotalPriceFromCart) {
+        this.window = window;
+        this.username = window.getUsername();
         this.subtotalPrice = subtotalPriceFromCart;
         this.stateComboBox = new JComboBox<>(INDIAN_STATES);
         
         // **REMOVED: loadShippingAddress() - No address data in Users table**
         
-        setTitle("SareeStore - Checkout & Payment");
-        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-        setExtendedState(JFrame.MAXIMIZED_BOTH);
-        getContentPane().setBackground(new Color(245, 245, 245));
+        setBackground(new Color(245, 245, 245));
         setLayout(new BorderLayout());
 
         add(createTopBar(), BorderLayout.NORTH);
@@ -77,9 +84,10 @@ public class PaymentPage extends JFrame {
         updateSummaryLabels(); 
         codRadio.setSelected(true); 
         updatePaymentForm(); 
-        
-        setVisible(true);
     }
+
+    @Override
+    public String getPageTitle() { return "SareeStore - Checkout & Payment"; }
     
     // --------------------------------------------------------------------------------
     // --- UI Layout Methods (Unchanged) ---
@@ -116,10 +124,14 @@ public class PaymentPage extends JFrame {
 
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         buttonPanel.setBackground(new Color(245, 245, 245));
-        JButton confirmBtn = new JButton("Place Order");
-        styleButton(confirmBtn, new Color(34, 139, 34));
-        confirmBtn.addActionListener(e -> processPayment(codRadio.isSelected()));
-        buttonPanel.add(confirmBtn);
+        styleButton(placeOrderBtn, new Color(34, 139, 34));
+        placeOrderBtn.addActionListener(e -> processPayment(codRadio.isSelected()));
+        checkoutProgress.setStringPainted(true);
+        checkoutProgress.setFont(new Font("Arial", Font.PLAIN, 14));
+        checkoutProgress.setPreferredSize(new Dimension(260, 30));
+        checkoutProgress.setVisible(false);
+        buttonPanel.add(checkoutProgress);
+        buttonPanel.add(placeOrderBtn);
         
         wrapperPanel.add(buttonPanel, BorderLayout.SOUTH);
 
@@ -314,11 +326,7 @@ public class PaymentPage extends JFrame {
 
         JButton backBtn = new JButton("<< Back to Cart");
         styleButton(backBtn, new Color(200, 200, 200));
-        backBtn.addActionListener(e -> {
-             // Assuming cartpage constructor takes username
-             new cartpage(username); 
-             dispose();
-        });
+        backBtn.addActionListener(e -> window.back());
 
         JPanel nav = new JPanel(new FlowLayout(FlowLayout.RIGHT, 25, 5));
         nav.setBackground(Color.WHITE);
@@ -405,9 +413,6 @@ public class PaymentPage extends JFrame {
             return;
         }
 
-        String paymentMethod = isCOD ? "Cash on Delivery" : "Card";
-        String orderStatus = isCOD ? "Pending" : "Paid"; 
-        
         if (!isCOD && cardRadio.isSelected()) {
             // Card Validation
             String cnum = cardNumberField.getText().trim();
@@ -424,83 +429,99 @@ public class PaymentPage extends JFrame {
         double tax = subtotalPrice * TAX_RATE;
         double finalTotal = subtotalPrice + PLATFORM_FEE + DELIVERY_FEE + tax;
 
-        // 2. Create the order record using the CAPTURED address
-        int orderId = createOrderRecord(finalTotal, paymentMethod, orderStatus, name, state, city, address, zip);
+        // 2. Run the checkout pipeline on a background thread; the progress bar follows its stages
+        String totalText = totalLabel.getText();
+        placeOrderBtn.setEnabled(false);
+        placeOrderBtn.setText("Placing Order...");
+
+        String key = checkoutKey;
+        CheckoutPipeline pipeline = new CheckoutPipeline(username, key, finalTotal, isCOD, name, state, city, address, zip);
+        CompletableFuture<Integer> checkout = CheckoutRegistry.submit(key, () ->
+            pipeline.start(stage -> SwingUtilities.invokeLater(() -> showCheckoutProgress(stage))));
+        if (checkout == pendingCheckout) {
+            return; // a repeated click: the first submission will report the outcome
+        }
+        pendingCheckout = checkout;
 
-        if (orderId > 0) {
-            // 3. Move cart items to the orderitems table (CRITICAL TRANSACTIONAL FIX)
-            if (moveCartItemsToOrder(orderId)) {
-                 JOptionPane.showMessageDialog(this, 
-                     "Order #" + orderId + " placed successfully!\nTotal: " + totalLabel.getText() + 
-                     (isCOD ? "\nStatus: Pending Cash On Delivery." : "\nStatus: Payment successful."), 
-                     "Order Confirmed", JOptionPane.INFORMATION_MESSAGE);
-                 
-                 // **REMOVED: saveShippingAddress() - No saving back to Users table**
+        AsyncDataAccess.onEdt(checkout,
+            orderId -> {
+                endCheckout();
+                if (orderId > 0) {
+                    checkoutKey = CheckoutRegistry.newKey();
+                }
+                showOrderOutcome(orderId, isCOD, totalText);
+            },
+            error -> {
+                // The key is kept, so retrying cannot create a second order
+                endCheckout();
+                System.err.println("Error creating order record: " + error.getMessage());
+                System.err.println("Checkout stages: " + CheckoutPipeline.getStats());
+                if (error instanceof CheckoutPipeline.OutOfStockException) {
+                    showOutOfStock((CheckoutPipeline.OutOfStockException) error);
+                } else if (error instanceof CheckoutPipeline.StageTimeoutException) {
+                    // Timed out before the commit, so the whole checkout was rolled back
+                    JOptionPane.showMessageDialog(this, error.getMessage() + "\nNothing was charged or ordered. Please try again.", "Checkout Timed Out", JOptionPane.WARNING_MESSAGE);
+                } else if (error instanceof SQLTimeoutException) {
+                    // Cannot tell whether the order committed; the kept key makes a retry safe
+                    JOptionPane.showMessageDialog(this, "Checkout did not answer in time, so your order may or may not have been placed.\nPlease check your order history under Profile, or press Place Order again - it will not order twice.", "Checkout Timed Out", JOptionPane.WARNING_MESSAGE);
+                    window.ordersChanged();
+                } else {
+                    JOptionPane.showMessageDialog(this, "SQL Error creating order: " + error.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
+    }
 
+    /** Lists the lines that could not be reserved; the cart page should be reloaded to fix them. */
+    private void showOutOfStock(CheckoutPipeline.OutOfStockException error) {
+        StringBuilder msg = new StringBuilder("Some items no longer have enough stock:\n\n");
+        for (CheckoutPipeline.Shortage shortage : error.getShortages()) {
+            msg.append("• ").append(shortage.name).append(": ");
+            if (shortage.available > 0) {
+                msg.append("only ").append(shortage.available).append(" left, you asked for ").append(shortage.requested);
             } else {
-                 JOptionPane.showMessageDialog(this, 
-                     "Order creation failed to finalize (items not recorded). Order #" + orderId + " will be marked as 'Failed'.\nPlease contact support.", 
-                     "Critical Data Error", JOptionPane.ERROR_MESSAGE);
-                 
-                 try (Connection conn = DBConnection.getConnection();
-                      PreparedStatement ps = conn.prepareStatement("UPDATE orders SET status = 'Failed - Data Error' WHERE order_id = ?")) {
-                     ps.setInt(1, orderId);
-                     ps.executeUpdate();
-                 } catch (SQLException ex) {
-                     System.err.println("Failed to clean up half-order: " + ex.getMessage());
-                 }
-                return; 
+                msg.append("sold out");
             }
-        } else {
-             JOptionPane.showMessageDialog(this, "Failed to create Order record. Database error.", "Order Error", JOptionPane.ERROR_MESSAGE);
-             return;
+            msg.append("\n");
         }
+        msg.append("\nPlease update your cart. Nothing was ordered.");
+        JOptionPane.showMessageDialog(this, msg.toString(), "Out of Stock", JOptionPane.WARNING_MESSAGE);
+        window.cartChanged();
+    }
 
-        // Navigation after successful order placement
-        // **FIX: Navigates back to HomePage**
-        // You MUST ensure your HomePage class exists and takes a String username in its constructor.
-        new homePage(username); 
-        dispose();
+    private void showCheckoutProgress(CheckoutPipeline.Stage stage) {
+        if (pendingCheckout == null) {
+            return; // a late update after the outcome arrived
+        }
+        checkoutProgress.setValue(stage.ordinal() + 1);
+        checkoutProgress.setString(stage.label + "...");
+        checkoutProgress.setVisible(true);
     }
 
-    private int createOrderRecord(double totalPrice, String paymentMethod, String orderStatus, 
-                                  String name, String state, String city, String address, String zip) {
-        
-        // This query inserts the address directly into the orders table, using the shipping_* columns
-        String sql = "INSERT INTO orders (username, total_amount, payment_method, status, shipping_name, shipping_state, shipping_city, shipping_address, shipping_zip, order_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, NOW())";
-        int orderId = -1;
-
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            pstmt.setString(1, username);
-            pstmt.setDouble(2, totalPrice);
-            pstmt.setString(3, paymentMethod);
-            pstmt.setString(4, orderStatus);
-            
-            // Shipping Details (using input parameters)
-            pstmt.setString(5, name);
-            pstmt.setString(6, state); 
-            pstmt.setString(7, city);
-            pstmt.setString(8, address);
-            pstmt.setString(9, zip);
-            
-            int affectedRows = pstmt.executeUpdate();
-            
-            if (affectedRows > 0) {
-                try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        orderId = rs.getInt(1); 
-                    }
-                }
-            }
-        } catch (SQLException ex) {
-            System.err.println("Error creating order record: " + ex.getMessage());
-            JOptionPane.showMessageDialog(this, "SQL Error creating order: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
+    private void endCheckout() {
+        pendingCheckout = null;
+        checkoutProgress.setVisible(false);
+        placeOrderBtn.setEnabled(true);
+        placeOrderBtn.setText("Place Order");
+    }
+
+    /** Runs on the EDT once the background checkout work has finished. */
+    private void showOrderOutcome(int orderId, boolean isCOD, String totalText) {
+        if (orderId <= 0) {
+            // Nothing was written: the checkout transaction was rolled back
+            JOptionPane.showMessageDialog(this, "Your cart is empty, so no order was placed.", "Order Error", JOptionPane.WARNING_MESSAGE);
+            window.cartChanged();
+            return;
         }
-        return orderId;
+        JOptionPane.showMessageDialog(this, 
+            "Order #" + orderId + " placed successfully!\nTotal: " + totalText + 
+            (isCOD ? "\nStatus: Pending Cash On Delivery." : "\nStatus: Payment successful."), 
+            "Order Confirmed", JOptionPane.INFORMATION_MESSAGE);
+
+        // Navigation after successful order placement: back to Home; cart and orders are now stale
+        window.ordersChanged();
+        window.showHome();
     }
-    
+
     /**
      * **REMOVED** - This method is no longer needed since the Users table does not have address columns.
      */
@@ -510,69 +531,6 @@ public class PaymentPage extends JFrame {
     }
     */
 
-    private boolean moveCartItemsToOrder(int orderId) {
-        Connection conn = null;
-        boolean success = false;
-        
-        String selectSql = "SELECT c.product_id, c.quantity, p.price " +
-                              "FROM cart c JOIN Products p ON c.product_id = p.product_id " +
-                              "WHERE c.username = ?"; 
-        
-        String insertSql = "INSERT INTO orderitems (order_id, product_id, quantity, price_at_purchase) VALUES (?, ?, ?, ?)";
-        
-        String deleteSql = "DELETE FROM cart WHERE username = ?";
-
-        try {
-            conn = DBConnection.getConnection();
-            conn.setAutoCommit(false); 
-
-            try (PreparedStatement selectPstmt = conn.prepareStatement(selectSql)) {
-                selectPstmt.setString(1, username);
-                try (ResultSet rs = selectPstmt.executeQuery();
-                     PreparedStatement insertPstmt = conn.prepareStatement(insertSql)) {
-
-                    while (rs.next()) {
-                        int productId = rs.getInt("product_id");
-                        int quantity = rs.getInt("quantity");
-                        double price = rs.getDouble("price");
-
-                        insertPstmt.setInt(1, orderId);
-                        insertPstmt.setInt(2, productId);
-                        insertPstmt.setInt(3, quantity);
-                        insertPstmt.setDouble(4, price);
-                        insertPstmt.addBatch(); 
-                    }
-                    insertPstmt.executeBatch(); 
-                }
-            }
-
-            try (PreparedStatement deletePstmt = conn.prepareStatement(deleteSql)) {
-                deletePstmt.setString(1, username);
-                deletePstmt.executeUpdate();
-                success = true;
-            }
-            
-            conn.commit(); 
-            
-        } catch (SQLException ex) {
-            try {
-                if (conn != null) {
-                    conn.rollback(); 
-                    System.err.println("Transaction rolled back due to error.");
-                }
-            } catch (SQLException rollbackEx) { }
-            System.err.println("Transaction failed: " + ex.getMessage());
-            ex.printStackTrace();
-            success = false;
-        } finally {
-            try {
-                if (conn != null) conn.setAutoCommit(true);
-                if (conn != null) conn.close(); 
-            } catch (SQLException finalEx) { }
-        }
-        return success;
-    }
-    
     // ---------------------------------
     // --- Helper Methods (Unchanged) ---
     // ---------------------------------
@@ -602,5 +560,4 @@ public class PaymentPage extends JFrame {
         button.setBorder(BorderFactory.createEmptyBorder(12, 30, 12, 30));
         button.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
     }
-    
 }
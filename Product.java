@@ -5,13 +5,29 @@ public class Product {
     private final double price;
     private final String category;
     private final String imagePath;
+    private final String description;
+    private final int stockQuantity;
+    private final String thumbnailKey; // ThumbnailStore key, null until renditions exist
 
     public Product(int id, String name, double price, String category, String imagePath) {
+        this(id, name, price, category, imagePath, "", 0);
+    }
+
+    public Product(int id, String name, double price, String category, String imagePath,
+                   String description, int stockQuantity) {
+        this(id, name, price, category, imagePath, description, stockQuantity, null);
+    }
+
+    public Product(int id, String name, double price, String category, String imagePath,
+                   String description, int stockQuantity, String thumbnailKey) {
         this.id = id;
         this.name = name;
         this.price = price;
         this.category = category;
         this.imagePath = imagePath;
+        this.description = description == null ? "" : description;
+        this.stockQuantity = stockQuantity;
+        this.thumbnailKey = thumbnailKey;
     }
 
     public int getId() { return id; }
@@ -19,4 +35,7 @@ public class Product {
     public double getPrice() { return price; }
     public String getCategory() { return category; }
     public String getImagePath() { return imagePath; } 
+    public String getDescription() { return description; }
+    public int getStockQuantity() { return stockQuantity; }
+    public String getThumbnailKey() { return thumbnailKey; }
 }
@@ -3,35 +3,62 @@
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.text.DecimalFormat;
-import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 @SuppressWarnings("serial")
-public class ProductPage extends JFrame {
+public class ProductPage extends JPanel implements StorePage {
 
+    private final StoreWindow window;
     private final Product product;
     private final String username;
     private final DecimalFormat df = new DecimalFormat("₹#,##0.00");
 
-    public ProductPage(Product product, String username) {
+    private static final int MAX_RECOMMENDATIONS = 5;
+    private final JPanel recommendationsPanel = new JPanel(new BorderLayout());
+    private final JPanel recommendationCards = new JPanel(new FlowLayout(FlowLayout.LEFT, 30, 10));
+    private int[] shownRecommendations = new int[0];
+
+    // Inline feedback for Add to Cart; cleared a few seconds after the last click
+    private static final int STATUS_CLEAR_MILLIS = 4000;
+    private final JLabel cartStatusLabel = new JLabel(" ");
+    private final Timer statusClearTimer = new Timer(STATUS_CLEAR_MILLIS, e -> cartStatusLabel.setText(" "));
+
+    public ProductPage(StoreWindow window, Product product) {
+        this.window = window;
         this.product = product;
-        this.username = username;
+        this.username = window.getUsername();
 
-        setTitle("SareeStore - " + product.getName());
-        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-        setExtendedState(JFrame.MAXIMIZED_BOTH);
-        getContentPane().setBackground(Color.WHITE);
+        setBackground(Color.WHITE);
         setLayout(new BorderLayout());
 
         add(createTopBar(), BorderLayout.NORTH);
-        add(createMainContentPanel(), BorderLayout.CENTER);
 
-        setVisible(true);
+        JPanel content = new JPanel();
+        content.setLayout(new BoxLayout(content, BoxLayout.Y_AXIS));
+        content.setBackground(Color.WHITE);
+        content.add(createMainContentPanel());
+        content.add(createRecommendationsPanel());
+
+        JScrollPane scrollPane = new JScrollPane(content);
+        scrollPane.setBorder(null);
+        scrollPane.getVerticalScrollBar().setUnitIncrement(16);
+        add(scrollPane, BorderLayout.CENTER);
+    }
+
+    @Override
+    public String getPageTitle() { return "SareeStore - " + product.getName(); }
+
+    /** Recommendations can change as orders come in, so they are looked up on every visit. */
+    @Override
+    public void onPageShown() {
+        loadRecommendations();
     }
 
+    public Product getProduct() { return product; }
+
     private JPanel createTopBar() {
         JPanel topBar = new JPanel(new BorderLayout());
         topBar.setBackground(Color.WHITE);
@@ -46,10 +73,7 @@ public class ProductPage extends JFrame {
         backBtn.setFont(new Font("Arial", Font.BOLD, 14));
         backBtn.setFocusPainted(false);
         backBtn.setBackground(new Color(240, 240, 240));
-        backBtn.addActionListener(e -> {
-            new homePage(username);
-            dispose();
-        });
+        backBtn.addActionListener(e -> window.back());
 
         JPanel nav = new JPanel(new FlowLayout(FlowLayout.RIGHT, 25, 5));
         nav.setBackground(Color.WHITE);
@@ -75,18 +99,11 @@ public class ProductPage extends JFrame {
         imagePanel.setBackground(Color.WHITE);
         imagePanel.setBorder(BorderFactory.createLineBorder(new Color(220, 220, 220), 1));
 
-        JLabel imageLabel;
-        try {
-            // Note: The imagePath must be valid for this to work
-            ImageIcon icon = new ImageIcon(product.getImagePath()); 
-            Image img = icon.getImage().getScaledInstance(500, 500, Image.SCALE_SMOOTH);
-            icon = new ImageIcon(img);
-            imageLabel = new JLabel(icon);
-        } catch (Exception e) {
-            imageLabel = new JLabel("Image not available: " + product.getImagePath(), SwingConstants.CENTER);
-            imageLabel.setFont(new Font("Arial", Font.ITALIC, 16));
-            imageLabel.setForeground(Color.RED);
-        }
+        JLabel imageLabel = new JLabel("", SwingConstants.CENTER);
+        imageLabel.setFont(new Font("Arial", Font.ITALIC, 16));
+        imageLabel.setForeground(Color.RED);
+        ThumbnailLoader.load(imageLabel, product, ThumbnailStore.Rendition.DETAIL,
+            "Image not available: " + product.getImagePath());
 
         imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
         imagePanel.add(imageLabel, BorderLayout.CENTER);
@@ -116,7 +133,8 @@ public class ProductPage extends JFrame {
         detailsPanel.add(priceLabel);
         detailsPanel.add(Box.createVerticalStrut(30));
 
-        JTextArea description = new JTextArea(
+        // Falls back to the generic copy for products saved without details
+        JTextArea description = new JTextArea(!product.getDescription().isEmpty() ? product.getDescription() :
             "This exquisite saree features a blend of traditional weaving techniques and modern prints. " +
             "Perfect for weddings, festivals, or special occasions. Fabric quality ensures comfort and a beautiful drape."
         );
@@ -134,7 +152,7 @@ public class ProductPage extends JFrame {
         qtyLabel.setFont(new Font("Arial", Font.BOLD, 18));
         qtyPanel.add(qtyLabel);
 
-        SpinnerModel model = new SpinnerNumberModel(1, 1, 10, 1);
+        SpinnerModel model = new SpinnerNumberModel(1, 1, CartBuffer.MAX_QUANTITY, 1);
         JSpinner qtySpinner = new JSpinner(model);
         qtySpinner.setFont(new Font("Arial", Font.PLAIN, 18));
         qtySpinner.setPreferredSize(new Dimension(80, 30));
@@ -156,53 +174,97 @@ public class ProductPage extends JFrame {
         });
 
         detailsPanel.add(addToCartBtn);
+        detailsPanel.add(Box.createVerticalStrut(15));
+
+        cartStatusLabel.setFont(new Font("Arial", Font.BOLD, 16));
+        detailsPanel.add(cartStatusLabel);
 
         return detailsPanel;
     }
 
-    private void addItemToCart(int quantity) {
-        String checkSql = "SELECT cart_item_id, quantity FROM Cart WHERE username = ? AND product_id = ? AND order_id IS NULL";
-        String updateSql = "UPDATE Cart SET quantity = quantity + ?, product_name = ?, price = ? WHERE cart_item_id = ?";
-        String insertSql = "INSERT INTO Cart (username, product_id, quantity, product_name, price) VALUES (?, ?, ?, ?, ?)";
-
-        try (Connection conn = DBConnection.getConnection()) {
-            try (PreparedStatement checkPs = conn.prepareStatement(checkSql)) {
-                checkPs.setString(1, username);
-                checkPs.setInt(2, product.getId());
-                ResultSet rs = checkPs.executeQuery();
-
-                if (rs.next()) {
-                    int cartItemId = rs.getInt("cart_item_id");
-                    try (PreparedStatement updatePs = conn.prepareStatement(updateSql)) {
-                        updatePs.setInt(1, quantity);
-                        updatePs.setString(2, product.getName());
-                        updatePs.setDouble(3, product.getPrice());
-                        updatePs.setInt(4, cartItemId);
-                        updatePs.executeUpdate();
-                        JOptionPane.showMessageDialog(this,
-                            quantity + " more of " + product.getName() + " added to your cart!",
-                            "Cart Updated", JOptionPane.INFORMATION_MESSAGE);
-                    }
-                } else {
-                    try (PreparedStatement insertPs = conn.prepareStatement(insertSql)) {
-                        insertPs.setString(1, username);
-                        insertPs.setInt(2, product.getId());
-                        insertPs.setInt(3, quantity);
-                        insertPs.setString(4, product.getName());
-                        insertPs.setDouble(5, product.getPrice());
-                        insertPs.executeUpdate();
-                        JOptionPane.showMessageDialog(this,
-                            quantity + " x " + product.getName() + " successfully added to cart!",
-                            "Added to Cart", JOptionPane.INFORMATION_MESSAGE);
+    // ---------------------------------
+    // --- Customers Also Bought ---
+    // ---------------------------------
+
+    private JPanel createRecommendationsPanel() {
+        recommendationsPanel.setBackground(Color.WHITE);
+        recommendationsPanel.setBorder(new EmptyBorder(0, 100, 40, 100));
+
+        JLabel title = new JLabel("Customers also bought");
+        title.setFont(new Font("Arial", Font.BOLD, 24));
+        title.setForeground(new Color(140, 40, 80));
+        title.setBorder(new EmptyBorder(10, 0, 10, 0));
+        recommendationsPanel.add(title, BorderLayout.NORTH);
+
+        recommendationCards.setBackground(Color.WHITE);
+        recommendationsPanel.add(recommendationCards, BorderLayout.CENTER);
+        recommendationsPanel.setVisible(false); // Until there is something to show
+        return recommendationsPanel;
+    }
+
+    /** The lookup is an array copy once the engine is built; the first build runs off the EDT. */
+    private void loadRecommendations() {
+        AsyncDataAccess.onEdt(RecommendationEngine.getAsync().thenCombine(CatalogCache.getAsync(), (engine, catalog) -> {
+                List<Product> products = new ArrayList<>();
+                // Ask for extra ids in case some products have since been deleted
+                for (int id : engine.recommend(product.getId(), RecommendationEngine.TOP_K)) {
+                    Product p = catalog.getProduct(id);
+                    if (p != null && products.size() < MAX_RECOMMENDATIONS) {
+                        products.add(p);
                     }
                 }
-            }
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this,
-                "Error adding item to cart: " + ex.getMessage(),
-                "Database Error", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
+                return products;
+            }),
+            this::showRecommendations,
+            error -> System.err.println("Error loading recommendations: " + error.getMessage()));
+    }
+
+    private void showRecommendations(List<Product> products) {
+        int[] ids = products.stream().mapToInt(Product::getId).toArray();
+        if (Arrays.equals(ids, shownRecommendations)) {
+            return; // Unchanged since the last visit; keep the cards and their thumbnails
         }
+        shownRecommendations = ids;
+        recommendationCards.removeAll();
+        for (Product p : products) {
+            SareeCard card = new SareeCard(window::showProduct);
+            card.bind(p);
+            recommendationCards.add(card);
+        }
+        recommendationsPanel.setVisible(!products.isEmpty());
+        recommendationsPanel.revalidate();
+        recommendationsPanel.repaint();
+    }
+
+    /**
+     * Adds quantity to the user's open cart line. The change goes into the user's
+     * {@link CartBuffer} and returns at once; the buffer writes it, coalesced with any other
+     * cart changes, as an atomic upsert a moment later. So repeated clicks cost nothing here
+     * and still add up on one row.
+     */
+    private void addItemToCart(int quantity) {
+        CartBuffer.forUser(username).add(product.getId(), quantity, product.getName(), product.getPrice());
+        showCartStatus("✓ " + quantity + " x " + product.getName() + " added to your cart", new Color(34, 139, 34));
+        window.cartChanged();
+    }
+
+    /** Called by the window when buffered cart writes fail; the green "added" no longer holds. */
+    public void cartWriteFailed() {
+        if (!" ".equals(cartStatusLabel.getText())) {
+            showCartStatus("Could not save " + product.getName() + " to your cart", Color.RED);
+        }
+    }
+
+    /** Called by the window when the database rejected this product's cart change. */
+    public void cartWriteRejected() {
+        showCartStatus(product.getName() + " could not be added to your cart", Color.RED);
+    }
+
+    private void showCartStatus(String text, Color color) {
+        cartStatusLabel.setText(text);
+        cartStatusLabel.setForeground(color);
+        statusClearTimer.setRepeats(false);
+        statusClearTimer.restart();
     }
 }
 // ⭐️ Removed the extra closing brace that was here ⭐️
@@ -0,0 +1,285 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * "Customers also bought" recommendations from item-to-item co-occurrence in orderitems.
+ *
+ * Every pair of products bought in the same order counts once. Pair counts live in a
+ * primitive open-addressing map keyed by the two product ids packed into a long, and each
+ * product keeps its top {@link #TOP_K} neighbours in flat int arrays, so a lookup is an array
+ * copy. New orders are added incrementally: counts only grow, so a neighbour can only enter a
+ * product's top list when its own pair count rises, which keeps the lists exact without a rescan.
+ */
+public class RecommendationEngine {
+
+    public static final int TOP_K = 10;
+    private static final int MAX_ITEMS_PER_ORDER = 50; // Pairs grow quadratically; bulk orders say little
+
+    private static volatile RecommendationEngine instance;
+    private static CompletableFuture<RecommendationEngine> loading; // guarded by RecommendationEngine.class
+    // Orders committed while the engine is being built, by order id; guarded by RecommendationEngine.class
+    private static Map<Integer, List<Integer>> pending;
+
+    private final PairCounts pairCounts = new PairCounts();
+
+    // --- Top neighbours: row r holds ids and counts at [r * TOP_K, r * TOP_K + topSize[r]) ---
+    private final Map<Integer, Integer> rowByProductId = new HashMap<>();
+    private int[] topIds = new int[16 * TOP_K];
+    private int[] topCounts = new int[16 * TOP_K];
+    private int[] topSize = new int[16];
+    private int rowCount = 0;
+
+    private RecommendationEngine() {
+    }
+
+    // ---------------------------------
+    // --- Shared Instance ---
+    // ---------------------------------
+
+    /** The shared engine, building it from orderitems off the EDT on first use. */
+    public static synchronized CompletableFuture<RecommendationEngine> getAsync() {
+        RecommendationEngine current = instance;
+        if (current != null) {
+            return CompletableFuture.completedFuture(current);
+        }
+        if (loading == null) {
+            pending = new LinkedHashMap<>(); // Before the query starts, so no order slips between
+            loading = AsyncDataAccess.supply(conn -> {
+                BitSet seen = new BitSet();
+                RecommendationEngine engine = load(conn, seen);
+                publish(engine, seen);
+                return engine;
+            });
+            loading.whenComplete((engine, error) -> {
+                synchronized (RecommendationEngine.class) {
+                    loading = null;
+                    pending = null;
+                }
+            });
+        }
+        return loading;
+    }
+
+    /**
+     * Records a committed order. While the engine is being built the order is held and
+     * replayed unless the build already read it; before any build it is ignored, since
+     * the build reads every committed order.
+     */
+    public static void orderPlaced(int orderId, List<Integer> productIds) {
+        RecommendationEngine current = instance;
+        if (current == null) {
+            synchronized (RecommendationEngine.class) {
+                current = instance;
+                if (current == null) {
+                    if (pending != null) {
+                        pending.put(orderId, new ArrayList<>(productIds));
+                    }
+                    return;
+                }
+            }
+        }
+        current.addOrder(productIds);
+    }
+
+    // Replays the orders the build did not see, then makes the engine visible
+    private static synchronized void publish(RecommendationEngine engine, BitSet seen) {
+        for (Map.Entry<Integer, List<Integer>> order : pending.entrySet()) {
+            if (!seen.get(order.getKey())) {
+                engine.addOrder(order.getValue());
+            }
+        }
+        pending = null;
+        instance = engine;
+    }
+
+    /** Reads every order's products and builds the engine; marks each order id read in seen. */
+    static RecommendationEngine load(Connection conn, BitSet seen) throws SQLException {
+        RecommendationEngine engine = new RecommendationEngine();
+        String sql = "SELECT order_id, product_id FROM orderitems ORDER BY order_id";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            DBConnection.streamResults(ps); // Every order item; not all of them in memory at once
+            try (ResultSet rs = ps.executeQuery()) {
+                List<Integer> order = new ArrayList<>();
+                int currentOrder = Integer.MIN_VALUE;
+                while (rs.next()) {
+                    int orderId = rs.getInt("order_id");
+                    if (orderId != currentOrder) {
+                        seen.set(orderId);
+                        engine.addOrder(order);
+                        order.clear();
+                        currentOrder = orderId;
+                    }
+                    order.add(rs.getInt("product_id"));
+                }
+                engine.addOrder(order);
+            }
+        }
+        return engine;
+    }
+
+    // ---------------------------------
+    // --- Queries ---
+    // ---------------------------------
+
+    /** Ids of the products most often bought with this one, most frequent first. */
+    public synchronized int[] recommend(int productId, int limit) {
+        Integer row = rowByProductId.get(productId);
+        if (row == null) {
+            return new int[0];
+        }
+        int base = row * TOP_K;
+        return Arrays.copyOfRange(topIds, base, base + Math.min(limit, topSize[row]));
+    }
+
+    /** Number of orders containing both products. */
+    public synchronized int coPurchases(int productA, int productB) {
+        return pairCounts.get(pairKey(productA, productB));
+    }
+
+    // ---------------------------------
+    // --- Incremental Updates ---
+    // ---------------------------------
+
+    /** Adds one order's products (duplicates are ignored) to the pair counts and top lists. */
+    public synchronized void addOrder(List<Integer> productIds) {
+        int[] ids = productIds.stream().mapToInt(Integer::intValue).distinct().limit(MAX_ITEMS_PER_ORDER).toArray();
+        for (int i = 0; i < ids.length; i++) {
+            for (int j = i + 1; j < ids.length; j++) {
+                int count = pairCounts.increment(pairKey(ids[i], ids[j]));
+                offer(ids[i], ids[j], count);
+                offer(ids[j], ids[i], count);
+            }
+        }
+    }
+
+    // The pair count of (productId, neighbourId) rose to count; keep productId's top list sorted
+    private void offer(int productId, int neighbourId, int count) {
+        int row = rowFor(productId);
+        int base = row * TOP_K;
+        int size = topSize[row];
+
+        int pos = -1;
+        for (int i = 0; i < size; i++) {
+            if (topIds[base + i] == neighbourId) {
+                pos = i;
+                break;
+            }
+        }
+        if (pos < 0) {
+            if (size < TOP_K) {
+                pos = size;
+                topSize[row] = size + 1;
+            } else if (count > topCounts[base + TOP_K - 1]) {
+                pos = TOP_K - 1; // Replaces the weakest neighbour
+            } else {
+                return;
+            }
+        }
+        // Move up past neighbours with a lower count
+        while (pos > 0 && topCounts[base + pos - 1] < count) {
+            topIds[base + pos] = topIds[base + pos - 1];
+            topCounts[base + pos] = topCounts[base + pos - 1];
+            pos--;
+        }
+        topIds[base + pos] = neighbourId;
+        topCounts[base + pos] = count;
+    }
+
+    private int rowFor(int productId) {
+        Integer row = rowByProductId.get(productId);
+        if (row != null) {
+            return row;
+        }
+        if (rowCount == topSize.length) {
+            int capacity = rowCount * 2;
+            topSize = Arrays.copyOf(topSize, capacity);
+            topIds = Arrays.copyOf(topIds, capacity * TOP_K);
+            topCounts = Arrays.copyOf(topCounts, capacity * TOP_K);
+        }
+        rowByProductId.put(productId, rowCount);
+        return rowCount++;
+    }
+
+    // Unordered pair: the smaller id in the high half
+    private static long pairKey(int a, int b) {
+        int low = Math.min(a, b);
+        int high = Math.max(a, b);
+        return ((long) low << 32) | (high & 0xffffffffL);
+    }
+
+    // Open-addressing long -> int map with linear probing; no boxing per pair
+    private static final class PairCounts {
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] keys = newKeys(1024);
+        private int[] values = new int[1024];
+        private int size = 0;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return 0;
+        }
+
+        int increment(long key) {
+            if (size * 2 >= keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != EMPTY) {
+                if (keys[i] == key) {
+                    return ++values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = 1;
+            size++;
+            return 1;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = newKeys(oldKeys.length * 2);
+            values = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != EMPTY) {
+                    int i = slot(oldKeys[j], mask);
+                    while (keys[i] != EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L; // Fibonacci hashing spreads sequential ids
+            return (int) (h >>> 32) & mask;
+        }
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.function.Consumer;
+
+/**
+ * A product card (thumbnail, name, price). Cards are reusable: {@link VirtualProductGrid}
+ * re-binds the same instance to whichever product scrolls into its slot.
+ */
+@SuppressWarnings("serial")
+public class SareeCard extends JPanel {
+
+    public static final int WIDTH = 270;
+    public static final int HEIGHT = 350;
+
+    private final JLabel imageLabel = new JLabel("", SwingConstants.CENTER);
+    private final JLabel nameLabel = new JLabel("", SwingConstants.LEFT);
+    private final JLabel priceLabel = new JLabel("", SwingConstants.RIGHT);
+    private Product product;
+
+    public SareeCard(Consumer<Product> onOpen) {
+        super(new BorderLayout());
+        setBackground(Color.WHITE);
+        setBorder(BorderFactory.createLineBorder(new Color(220, 220, 220), 2));
+        setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        setPreferredSize(new Dimension(WIDTH, HEIGHT));
+
+        imageLabel.setPreferredSize(new Dimension(250, 250));
+        add(imageLabel, BorderLayout.CENTER);
+
+        // Details Panel for Name and Price
+        JPanel detailsPanel = new JPanel(new BorderLayout());
+        detailsPanel.setBorder(new EmptyBorder(5, 10, 5, 10));
+        detailsPanel.setBackground(Color.WHITE);
+
+        nameLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        nameLabel.setForeground(new Color(65, 105, 225));
+        detailsPanel.add(nameLabel, BorderLayout.NORTH);
+
+        priceLabel.setFont(new Font("Arial", Font.BOLD, 16));
+        priceLabel.setForeground(new Color(255, 69, 0));
+        detailsPanel.add(priceLabel, BorderLayout.SOUTH);
+
+        add(detailsPanel, BorderLayout.SOUTH);
+
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (product != null) {
+                    onOpen.accept(product);
+                }
+            }
+        });
+    }
+
+    /** Shows the given product; the thumbnail is swapped in once it has loaded. */
+    public void bind(Product product) {
+        if (this.product == product) {
+            return;
+        }
+        this.product = product;
+        nameLabel.setText(product.getName());
+        priceLabel.setText("₹" + String.format("%.2f", product.getPrice()));
+        ThumbnailLoader.load(imageLabel, product, ThumbnailStore.Rendition.CARD);
+    }
+
+    public Product getProduct() { return product; }
+}
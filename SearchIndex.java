@@ -0,0 +1,628 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * In-memory inverted index over product name, category and description, for search-as-you-type.
+ *
+ * Terms are kept sorted so every query word of two or more letters matches as a prefix
+ * ("sil" finds "silk"). A word that is not itself a term also matches terms within a small
+ * edit distance ({@link FuzzyTermIndex}), so "banarsi" still finds Banarasi sarees even when
+ * some unrelated term happens to start with it.
+ * A product must match every query word; the score adds the field weights of the matching
+ * terms (name > category > description, exact words above prefixes) plus a boost for units sold.
+ *
+ * Built from the {@link CatalogCache} snapshot and kept current through its listener, so admin
+ * edits in ManageProductsPage and AddProductPage are applied incrementally. A reloaded catalog
+ * is indexed on the background executor while queries keep using the old index; edits and
+ * sales arriving meanwhile are applied to both.
+ */
+public class SearchIndex {
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float CATEGORY_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float PREFIX_FACTOR = 0.6f;  // Prefix-only matches rank below whole words
+    private static final float SALES_WEIGHT = 0.5f;   // Per log(1 + units sold)
+    private static final int MIN_PREFIX = 2;          // A lone first letter only matches whole words
+    private static final float FUZZY_FACTOR = 0.5f;   // Per edit, for misspelled words
+
+    private static volatile SearchIndex instance;
+    private static CompletableFuture<SearchIndex> loading; // guarded by SearchIndex.class
+    // Edits and sales made while an index is being built, replayed on it before it is swapped in;
+    // null when no build is running. Guarded by SearchIndex.class
+    private static List<Consumer<SearchIndex>> pendingDeltas;
+    // Latest reloaded catalog waiting for the rebuilder; rebuilds run one at a time
+    private static final AtomicReference<CatalogSnapshot> pendingRebuild = new AtomicReference<>();
+    private static final Object REBUILD_LOCK = new Object();
+
+    // --- Documents (slots are reused after deletes) ---
+    private Product[] docs = new Product[16];
+    private String[][] docTerms = new String[16][];
+    private float[][] docWeights = new float[16][];
+    private int[][] docPositions = new int[16][]; // Where the slot sits in each of its terms' postings
+    private long totalDocTerms = 0;
+    private int[] sales = new int[16];
+    private float[] salesBoost = new float[16]; // SALES_WEIGHT * log(1 + sales), precomputed
+    private int docCount = 0;
+    private final List<Integer> freeSlots = new ArrayList<>();
+    private final Map<Integer, Integer> slotByProductId = new HashMap<>();
+    private final Map<Integer, Integer> salesByProductId;
+
+    // --- Postings: term -> (slot, weight) ---
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    // Sorted copy of the term dictionary for fast prefix scans; rebuilt lazily after edits
+    private String[] sortedTerms = new String[0];
+    private Postings[] sortedPostings = new Postings[0];
+    private boolean termsDirty = true;
+    // Same dictionary, searchable by edit distance
+    private final FuzzyTermIndex fuzzyTerms = new FuzzyTermIndex();
+
+    // --- Query scratch space, reused under the index lock ---
+    private float[] scores = new float[16];
+    private int[] matched = new int[16];
+    private int[] seenStamp = new int[16];
+    private int[] touched = new int[16];
+    private int stamp = 0;
+
+    private SearchIndex(Map<Integer, Integer> salesByProductId) {
+        this.salesByProductId = salesByProductId;
+    }
+
+    // ---------------------------------
+    // --- Shared Instance ---
+    // ---------------------------------
+
+    /** The shared index, building it off the EDT on first use. */
+    public static synchronized CompletableFuture<SearchIndex> getAsync() {
+        SearchIndex current = instance;
+        if (current != null) {
+            return CompletableFuture.completedFuture(current);
+        }
+        if (loading == null) {
+            loading = AsyncDataAccess.call(SearchIndex::load);
+            loading.whenComplete((index, error) -> {
+                synchronized (SearchIndex.class) {
+                    loading = null;
+                }
+            });
+        }
+        return loading;
+    }
+
+    /** The shared index if it has been built, else null. */
+    public static SearchIndex getIfReady() {
+        return instance;
+    }
+
+    // An order committing just as the sales query starts may be counted twice; it only nudges ranking
+    private static SearchIndex load() throws SQLException {
+        synchronized (SearchIndex.class) {
+            pendingDeltas = new ArrayList<>();
+        }
+        try {
+            Map<Integer, Integer> sales;
+            try (Connection conn = DBConnection.getConnection()) {
+                sales = loadSales(conn);
+            }
+            SearchIndex index = build(CatalogCache.get().getProducts(), sales);
+            publish(index);
+            return index;
+        } catch (SQLException | RuntimeException ex) {
+            synchronized (SearchIndex.class) {
+                pendingDeltas = null;
+            }
+            throw ex;
+        }
+    }
+
+    // Replays what happened during the build, then swaps the index in
+    private static synchronized void publish(SearchIndex index) {
+        for (Consumer<SearchIndex> delta : pendingDeltas) {
+            delta.accept(index);
+        }
+        pendingDeltas = null;
+        instance = index;
+    }
+
+    // Applies a change to the live index and records it for a build in progress
+    private static synchronized void apply(Consumer<SearchIndex> delta) {
+        if (pendingDeltas != null) {
+            pendingDeltas.add(delta);
+        }
+        SearchIndex current = instance;
+        if (current != null) {
+            delta.accept(current);
+        }
+    }
+
+    /** Records a committed order's units sold, so ranking follows demand. */
+    public static void orderPlaced(List<Integer> productIds, List<Integer> quantities) {
+        List<Integer> ids = new ArrayList<>(productIds);
+        List<Integer> units = new ArrayList<>(quantities);
+        apply(index -> {
+            for (int i = 0; i < ids.size(); i++) {
+                index.addSales(ids.get(i), units.get(i));
+            }
+        });
+    }
+
+    // Re-indexes the latest reloaded catalog on the executor
+    private static void rebuild() {
+        synchronized (REBUILD_LOCK) {
+            CatalogSnapshot reloaded = pendingRebuild.getAndSet(null);
+            if (reloaded == null) {
+                return; // An earlier task already indexed it
+            }
+            Map<Integer, Integer> sales;
+            List<Product> products;
+            synchronized (SearchIndex.class) {
+                SearchIndex current = instance;
+                if (current == null) {
+                    return; // The first build reads the catalog itself
+                }
+                pendingDeltas = new ArrayList<>();
+                sales = current.salesSnapshot();
+                // Edits patched into the cache since the reload are part of its current snapshot
+                CatalogSnapshot latest = CatalogCache.peek();
+                products = (latest != null ? latest : reloaded).getProducts();
+            }
+            try {
+                publish(build(products, sales));
+            } catch (RuntimeException ex) {
+                System.err.println("Could not rebuild the search index: " + ex.getMessage());
+            } finally {
+                synchronized (SearchIndex.class) {
+                    pendingDeltas = null;
+                }
+            }
+        }
+    }
+
+    /** Units sold per product, from all recorded orders. */
+    static Map<Integer, Integer> loadSales(Connection conn) throws SQLException {
+        Map<Integer, Integer> sales = new HashMap<>();
+        String sql = "SELECT product_id, SUM(quantity) AS sold FROM orderitems GROUP BY product_id";
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                sales.put(rs.getInt("product_id"), rs.getInt("sold"));
+            }
+        }
+        return sales;
+    }
+
+    /** Builds a standalone index (used by the shared instance and by benchmarks). */
+    public static SearchIndex build(List<Product> products, Map<Integer, Integer> salesByProductId) {
+        SearchIndex index = new SearchIndex(new HashMap<>(salesByProductId));
+        for (Product p : products) {
+            index.add(p);
+        }
+        return index;
+    }
+
+    // Keeps the shared index in step with the catalog
+    static {
+        CatalogCache.addListener(new CatalogCache.Listener() {
+            @Override
+            public void catalogLoaded(CatalogSnapshot snapshot) {
+                if (instance != null && pendingRebuild.getAndSet(snapshot) == null) {
+                    // Off the loading thread; queries keep using the old index until it is ready
+                    AsyncDataAccess.executor().execute(SearchIndex::rebuild);
+                }
+            }
+
+            @Override
+            public void productChanged(Product product) {
+                apply(index -> index.update(product));
+            }
+
+            @Override
+            public void productRemoved(int productId) {
+                apply(index -> index.remove(productId));
+            }
+        });
+    }
+
+    // ---------------------------------
+    // --- Queries ---
+    // ---------------------------------
+
+    /** Best matches for the query text, highest score first; empty for a blank query. */
+    public List<Product> search(String query, int limit) {
+        return search(query, limit, productId -> true);
+    }
+
+    /**
+     * Same as {@link #search(String, int)}, counting only products whose id passes allowed
+     * (e.g. the home page facet filters), so the limit applies to what is shown.
+     */
+    public synchronized List<Product> search(String query, int limit, IntPredicate allowed) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || slotByProductId.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        if (termsDirty) {
+            sortedTerms = terms.keySet().toArray(new String[0]);
+            sortedPostings = terms.values().toArray(new Postings[0]);
+            termsDirty = false;
+        }
+
+        // A document stays a candidate only while it has matched every word so far
+        int touchedCount = 0;
+        int candidates = 0;
+        for (int w = 0; w < words.size(); w++) {
+            String word = words.get(w);
+            stamp++;
+            // Later words only filter existing candidates, so a one-letter prefix is cheap there
+            boolean prefix = word.length() >= MIN_PREFIX || w > 0;
+            int from = lowerBound(word);
+            int to = from;
+            long postingsInRange = 0;
+            boolean exact = false;
+            while (to < sortedTerms.length && sortedTerms[to].startsWith(word)
+                    && (prefix || sortedTerms[to].length() == word.length())) {
+                exact |= sortedTerms[to].length() == word.length();
+                postingsInRange += sortedPostings[to++].size;
+            }
+
+            if (!exact) {
+                // Not a word of the catalog: it may be a misspelling even if some term starts with it
+                int maxDistance = FuzzyTermIndex.maxDistanceFor(word.length());
+                if (maxDistance > 0) {
+                    final int wordIndex = w;
+                    final int[] count = {touchedCount};
+                    fuzzyTerms.search(word, maxDistance, (term, distance) -> {
+                        if (!term.startsWith(word)) { // Prefix matches are scored below
+                            count[0] = addPostings(terms.get(term), fuzzyFactor(distance), wordIndex, count[0]);
+                        }
+                    });
+                    touchedCount = count[0];
+                }
+            }
+            if (from < to && w > 0 && candidates * averageTermsPerDoc() < postingsInRange) {
+                // Few candidates left: check their own terms instead of scanning long postings
+                for (int i = 0; i < touchedCount; i++) {
+                    int slot = touched[i];
+                    if (matched[slot] == w) {
+                        scoreDocument(slot, word);
+                    }
+                }
+            } else if (from < to) {
+                for (int t = from; t < to; t++) {
+                    float factor = sortedTerms[t].length() == word.length() ? 1.0f : PREFIX_FACTOR;
+                    touchedCount = addPostings(sortedPostings[t], factor, w, touchedCount);
+                }
+            }
+
+            // Advance the word count once per document, however many terms it matched
+            candidates = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int slot = touched[i];
+                if (seenStamp[slot] == stamp && matched[slot] == w) {
+                    matched[slot] = w + 1;
+                    candidates++;
+                }
+            }
+        }
+
+        // Keep the best `limit` documents in a small min-heap ordered by final score
+        int[] heap = new int[Math.min(limit, touchedCount)];
+        int heapSize = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int slot = touched[i];
+            if (matched[slot] == words.size() && allowed.test(docs[slot].getId())) {
+                scores[slot] += salesBoost[slot];
+                if (heapSize < heap.length) {
+                    heap[heapSize] = slot;
+                    siftUp(heap, heapSize++);
+                } else if (scores[slot] > scores[heap[0]]) {
+                    heap[0] = slot;
+                    siftDown(heap, heapSize);
+                }
+            }
+            matched[slot] = 0; // Reset scratch for the next query
+        }
+
+        Product[] result = new Product[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = docs[heap[0]];
+            heap[0] = heap[i];
+            siftDown(heap, i);
+        }
+        return Arrays.asList(result);
+    }
+
+    // Adds one term's weights to the documents still matching; returns the new touched count
+    private int addPostings(Postings postings, float factor, int w, int touchedCount) {
+        int[] slots = postings.slots;
+        float[] weights = postings.weights;
+        for (int i = 0; i < postings.size; i++) {
+            int slot = slots[i];
+            if (matched[slot] != w) {
+                continue;
+            }
+            if (seenStamp[slot] != stamp) {
+                seenStamp[slot] = stamp;
+                if (w == 0) {
+                    scores[slot] = 0;
+                    touched[touchedCount++] = slot;
+                }
+            }
+            scores[slot] += weights[i] * factor;
+        }
+        return touchedCount;
+    }
+
+    // Adds the document's weights for every term starting with word (candidate-driven path)
+    private void scoreDocument(int slot, String word) {
+        String[] docTermList = docTerms[slot];
+        float[] weights = docWeights[slot];
+        for (int k = 0; k < docTermList.length; k++) {
+            String term = docTermList[k];
+            if (term.startsWith(word)) {
+                seenStamp[slot] = stamp;
+                scores[slot] += weights[k] * (term.length() == word.length() ? 1.0f : PREFIX_FACTOR);
+            }
+        }
+    }
+
+    private static float fuzzyFactor(int distance) {
+        float factor = 1.0f;
+        for (int i = 0; i < distance; i++) {
+            factor *= FUZZY_FACTOR;
+        }
+        return factor;
+    }
+
+    private static float boost(int unitsSold) {
+        return SALES_WEIGHT * (float) Math.log1p(unitsSold);
+    }
+
+    private long averageTermsPerDoc() {
+        return Math.max(1, totalDocTerms / Math.max(1, slotByProductId.size()));
+    }
+
+    // First index in sortedTerms whose term is >= word
+    private int lowerBound(String word) {
+        int lo = 0;
+        int hi = sortedTerms.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedTerms[mid].compareTo(word) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void siftUp(int[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[heap[i]] >= scores[heap[parent]]) {
+                return;
+            }
+            int tmp = heap[i];
+            heap[i] = heap[parent];
+            heap[parent] = tmp;
+            i = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size) {
+        int i = 0;
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && scores[heap[left]] < scores[heap[smallest]]) {
+                smallest = left;
+            }
+            if (right < size && scores[heap[right]] < scores[heap[smallest]]) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            int tmp = heap[i];
+            heap[i] = heap[smallest];
+            heap[smallest] = tmp;
+            i = smallest;
+        }
+    }
+
+    public synchronized int size() {
+        return slotByProductId.size();
+    }
+
+    /** Distinct terms in the dictionary. */
+    public synchronized int termCount() {
+        return terms.size();
+    }
+
+    // ---------------------------------
+    // --- Incremental Updates ---
+    // ---------------------------------
+
+    /** Adds or re-indexes a product. */
+    public synchronized void update(Product product) {
+        remove(product.getId());
+        add(product);
+    }
+
+    /** Drops a product from the index. */
+    public synchronized void remove(int productId) {
+        Integer slot = slotByProductId.remove(productId);
+        if (slot == null) {
+            return;
+        }
+        String[] termList = docTerms[slot];
+        for (int k = 0; k < termList.length; k++) {
+            Postings postings = terms.get(termList[k]);
+            int position = docPositions[slot][k];
+            int moved = postings.removeAt(position);
+            if (moved >= 0) {
+                // Another document took this position; point its entry for the term here
+                docPositions[moved][indexOf(docTerms[moved], termList[k])] = position;
+            }
+            if (postings.size == 0) {
+                terms.remove(termList[k]);
+                fuzzyTerms.remove(termList[k]);
+                termsDirty = true;
+            }
+        }
+        totalDocTerms -= docTerms[slot].length;
+        docs[slot] = null;
+        docTerms[slot] = null;
+        docWeights[slot] = null;
+        docPositions[slot] = null;
+        freeSlots.add(slot);
+    }
+
+    /** Records units sold for a product (e.g. after an order), so ranking follows demand. */
+    public synchronized void addSales(int productId, int units) {
+        salesByProductId.merge(productId, units, Integer::sum);
+        Integer slot = slotByProductId.get(productId);
+        if (slot != null) {
+            sales[slot] += units;
+            salesBoost[slot] = boost(sales[slot]);
+        }
+    }
+
+    private synchronized Map<Integer, Integer> salesSnapshot() {
+        return new HashMap<>(salesByProductId);
+    }
+
+    private void add(Product product) {
+        int slot = freeSlots.isEmpty() ? docCount++ : freeSlots.remove(freeSlots.size() - 1);
+        ensureCapacity(docCount);
+
+        Map<String, Float> weights = new HashMap<>();
+        addField(weights, product.getName(), NAME_WEIGHT);
+        addField(weights, product.getCategory(), CATEGORY_WEIGHT);
+        addField(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        String[] termList = new String[weights.size()];
+        float[] weightList = new float[weights.size()];
+        int[] positions = new int[weights.size()];
+        int k = 0;
+        for (Map.Entry<String, Float> entry : weights.entrySet()) {
+            Postings postings = terms.get(entry.getKey());
+            if (postings == null) {
+                postings = new Postings();
+                terms.put(entry.getKey(), postings);
+                fuzzyTerms.add(entry.getKey());
+                termsDirty = true;
+            }
+            termList[k] = entry.getKey();
+            weightList[k] = entry.getValue();
+            positions[k++] = postings.add(slot, entry.getValue());
+        }
+        docs[slot] = product;
+        docTerms[slot] = termList;
+        docWeights[slot] = weightList;
+        docPositions[slot] = positions;
+        totalDocTerms += termList.length;
+        sales[slot] = salesByProductId.getOrDefault(product.getId(), 0);
+        salesBoost[slot] = boost(sales[slot]);
+        matched[slot] = 0;
+        slotByProductId.put(product.getId(), slot);
+    }
+
+    private static int indexOf(String[] termList, String term) {
+        for (int k = 0; k < termList.length; k++) {
+            if (termList[k].equals(term)) {
+                return k;
+            }
+        }
+        throw new IllegalStateException("Term " + term + " missing from its document");
+    }
+
+    // Each distinct word counts once per field
+    private static void addField(Map<String, Float> weights, String text, float weight) {
+        for (String word : new HashSet<>(tokenize(text))) {
+            weights.merge(word, weight, Float::sum);
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= docs.length) {
+            return;
+        }
+        int capacity = Math.max(needed, docs.length * 2);
+        docs = Arrays.copyOf(docs, capacity);
+        docTerms = Arrays.copyOf(docTerms, capacity);
+        docWeights = Arrays.copyOf(docWeights, capacity);
+        docPositions = Arrays.copyOf(docPositions, capacity);
+        sales = Arrays.copyOf(sales, capacity);
+        salesBoost = Arrays.copyOf(salesBoost, capacity);
+        scores = Arrays.copyOf(scores, capacity);
+        matched = Arrays.copyOf(matched, capacity);
+        seenStamp = Arrays.copyOf(seenStamp, capacity);
+        touched = Arrays.copyOf(touched, capacity);
+    }
+
+    /** Lower-case words of letters and digits. */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    // Growable parallel arrays; cheaper than boxed lists for 100k+ postings
+    private static final class Postings {
+        int[] slots = new int[4];
+        float[] weights = new float[4];
+        int size = 0;
+
+        // Returns the position the slot was stored at
+        int add(int slot, float weight) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            slots[size] = slot;
+            weights[size] = weight;
+            return size++;
+        }
+
+        // Removes the entry at position by moving the last one into it; returns the moved
+        // slot (now at position), or -1 if position was last
+        int removeAt(int position) {
+            size--;
+            if (position == size) {
+                return -1;
+            }
+            slots[position] = slots[size];
+            weights[position] = weights[size];
+            return slots[position];
+        }
+    }
+}
@@ -127,7 +127,7 @@ public class Signup extends JFrame {
             
             if (registerUser(username, password)) {
                 JOptionPane.showMessageDialog(this, "Welcome, " + username + "! Account created successfully 🎉", "Success", JOptionPane.INFORMATION_MESSAGE);
-                new homePage(username); 
+                StoreWindow.open(username); 
                 dispose();
             }
         });
@@ -0,0 +1,278 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements for one physical connection, keyed by SQL text.
+ * Callers still close their statements; closing a cached statement only clears
+ * its parameters so the next prepare of the same SQL skips the server-side parse.
+ * Not thread-safe on its own: a pooled connection is only used by one borrower at a time.
+ *
+ * Preparing SQL whose cached statement is still open (nested use) gets an uncached statement.
+ * The caller should close it as usual; any left open are closed when the connection goes
+ * back to the pool.
+ *
+ * Per-statement settings (query timeout, max rows, fetch size and direction, max field size)
+ * changed by a borrower are put back to the driver's defaults when the statement is returned,
+ * so the next borrower of the same SQL starts clean.
+ */
+public class StatementCache {
+
+    private final Connection raw;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+    // Access-ordered, so iteration starts at the least recently used statement
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Uncached statements handed out during the current borrow
+    private final List<PreparedStatement> uncached = new ArrayList<>();
+
+    public StatementCache(Connection raw, int maxSize, AtomicLong hits, AtomicLong misses, AtomicLong evictions) {
+        this.raw = raw;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    /**
+     * Returns a statement for the given SQL, reusing a cached one when it is free.
+     * @param owner the pooled connection handle the statement should report as its connection
+     */
+    public PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys + "#" + sql;
+        Entry entry = entries.get(key);
+        if (entry != null && entry.handle == null && entry.evicted) {
+            // Its reset failed on return and it was closed; prepare afresh
+            entries.remove(key);
+            entry = null;
+        }
+
+        if (entry != null && entry.handle == null) {
+            hits.incrementAndGet();
+            return entry.lend(owner);
+        }
+        misses.incrementAndGet();
+
+        PreparedStatement ps = raw.prepareStatement(sql, autoGeneratedKeys);
+        if (entry != null) {
+            // Same SQL already open on this connection (nested use) - hand out an uncached statement
+            uncached.add(ps);
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new UncachedHandle(ps, owner));
+        }
+        entry = new Entry(ps);
+        entries.put(key, entry);
+        evictIfNeeded();
+        return entry.lend(owner);
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            Entry eldest = it.next();
+            if (eldest.handle != null) {
+                // Still in use; it is closed for real when the borrower closes it
+                eldest.evicted = true;
+            } else {
+                closeQuietly(eldest.statement);
+            }
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Invalidates any statement handles a borrower forgot to close before returning the
+     * connection, and closes the borrow's uncached statements.
+     */
+    public void releaseAll() {
+        for (Entry entry : entries.values()) {
+            if (entry.handle != null) {
+                entry.handle.closed = true;
+                entry.returned();
+            }
+        }
+        closeUncached();
+    }
+
+    /** Closes every cached statement; used when the physical connection is discarded. */
+    public void clear() {
+        for (Entry entry : entries.values()) {
+            closeQuietly(entry.statement);
+        }
+        entries.clear();
+        closeUncached();
+    }
+
+    private void closeUncached() {
+        for (PreparedStatement ps : uncached) {
+            closeQuietly(ps); // a no-op for the ones the caller already closed
+        }
+        uncached.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    // ---------------------------------
+    // --- Cache Entry and Handle ---
+    // ---------------------------------
+
+    private static final class Entry {
+        final PreparedStatement statement;
+        StatementHandle handle;       // non-null while lent out
+        ResultSet lastResultSet;
+        boolean evicted;
+        boolean settingsChanged;      // a borrower called one of the SETTINGS setters
+
+        // Driver defaults, restored when a borrower changed them
+        private final int queryTimeout;
+        private final int maxRows;
+        private final int fetchSize;
+        private final int fetchDirection;
+        private final int maxFieldSize;
+
+        Entry(PreparedStatement statement) throws SQLException {
+            this.statement = statement;
+            this.queryTimeout = statement.getQueryTimeout();
+            this.maxRows = statement.getMaxRows();
+            this.fetchSize = statement.getFetchSize();
+            this.fetchDirection = statement.getFetchDirection();
+            this.maxFieldSize = statement.getMaxFieldSize();
+        }
+
+        PreparedStatement lend(Connection owner) {
+            handle = new StatementHandle(this, owner);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, handle);
+        }
+
+        void returned() {
+            handle = null;
+            try {
+                if (lastResultSet != null) {
+                    lastResultSet.close();
+                }
+                if (evicted) {
+                    statement.close();
+                } else {
+                    statement.clearParameters();
+                    statement.clearBatch();
+                    if (settingsChanged) {
+                        statement.setQueryTimeout(queryTimeout);
+                        statement.setMaxRows(maxRows);
+                        statement.setFetchSize(fetchSize);
+                        statement.setFetchDirection(fetchDirection);
+                        statement.setMaxFieldSize(maxFieldSize);
+                        settingsChanged = false;
+                    }
+                }
+            } catch (SQLException ex) {
+                evicted = true;
+                closeQuietly(statement);
+            }
+            lastResultSet = null;
+        }
+    }
+
+    // Setters whose effect would otherwise outlive the borrow
+    private static final Set<String> SETTINGS = Set.of(
+        "setQueryTimeout", "setMaxRows", "setLargeMaxRows", "setFetchSize", "setFetchDirection", "setMaxFieldSize");
+
+    private static final class StatementHandle implements InvocationHandler {
+        private final Entry entry;
+        private final Connection owner;
+        private boolean closed = false;
+
+        StatementHandle(Entry entry, Connection owner) {
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        entry.returned();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.statement.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached[" + entry.statement + "]";
+                default:
+                    if (closed) {
+                        throw new SQLException("Statement is closed");
+                    }
+                    if (SETTINGS.contains(method.getName())) {
+                        entry.settingsChanged = true;
+                    }
+                    try {
+                        Object result = method.invoke(entry.statement, args);
+                        if (result instanceof ResultSet && method.getName().equals("executeQuery")) {
+                            entry.lastResultSet = (ResultSet) result;
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    // An uncached (nested) statement; only reports the pooled handle as its connection
+    private static final class UncachedHandle implements InvocationHandler {
+        private final PreparedStatement statement;
+        private final Connection owner;
+
+        UncachedHandle(PreparedStatement statement, Connection owner) {
+            this.statement = statement;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
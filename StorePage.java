@@ -0,0 +1,13 @@
+/**
+ * A page hosted by {@link StoreWindow}. Pages are kept alive between visits, so they should
+ * reload only data that has been marked stale when they are shown again.
+ */
+public interface StorePage {
+
+    /** Window title while this page is showing. */
+    String getPageTitle();
+
+    /** Called on the EDT each time the page becomes the visible card. */
+    default void onPageShown() {
+    }
+}
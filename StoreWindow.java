@@ -0,0 +1,251 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The single shopper window. Pages (home, cart, product details, checkout, account) are cards
+ * in a CardLayout and are kept alive between visits, so going back to a page shows it
+ * immediately instead of rebuilding it and re-querying the database.
+ *
+ * Pages report changes through {@link #cartChanged()} and {@link #ordersChanged()}; the
+ * affected pages reload that data the next time they are shown.
+ */
+@SuppressWarnings("serial")
+public class StoreWindow extends JFrame {
+
+    private static final String HOME = "home";
+    private static final String CART = "cart";
+    private static final String ACCOUNT = "account";
+    private static final String PAYMENT = "payment";
+    private static final String PRODUCT_PREFIX = "product:";
+
+    // Recently viewed product pages kept ready; older ones are dropped
+    private static final int MAX_PRODUCT_PAGES = 8;
+
+    private final String username;
+    private final CardLayout cards = new CardLayout();
+    private final JPanel cardPanel = new JPanel(cards);
+
+    private final Map<String, JComponent> pages = new HashMap<>();
+    private final LinkedHashMap<Integer, ProductPage> productPages = new LinkedHashMap<>(16, 0.75f, true);
+    private final Deque<String> backStack = new ArrayDeque<>();
+    private String current;
+
+    private boolean cartStale = false;
+    private boolean ordersStale = false;
+
+    // Cart writes are buffered (CartBuffer); this tells the user when one does not get saved
+    private final CartBuffer.Listener cartWriteListener = new CartBuffer.Listener() {
+        @Override
+        public void writesDelayed(SQLException error) {
+            SwingUtilities.invokeLater(() -> cartWriteFailed(
+                "Your cart changes could not be saved yet: " + error.getMessage() + "\nThey will be retried automatically.", null));
+        }
+
+        @Override
+        public void changesRejected(List<Integer> productIds, SQLException error) {
+            SwingUtilities.invokeLater(() -> cartWriteFailed(
+                productIds.size() + " cart change(s) could not be saved and were discarded: " + error.getMessage()
+                    + "\nThe product may no longer be available.", productIds));
+        }
+    };
+
+    /** Opens the store window for a logged-in user, starting on the home page. */
+    public static StoreWindow open(String username) {
+        StoreWindow window = new StoreWindow(username);
+        window.showHome();
+        window.setVisible(true);
+        return window;
+    }
+
+    private StoreWindow(String username) {
+        this.username = username;
+
+        setTitle("SareeStore - Home");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setExtendedState(JFrame.MAXIMIZED_BOTH);
+        getContentPane().setBackground(Color.WHITE);
+        setLayout(new BorderLayout());
+
+        cardPanel.setBackground(Color.WHITE);
+        add(cardPanel, BorderLayout.CENTER);
+
+        // Alt+Left goes back, like a browser
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+            .put(KeyStroke.getKeyStroke(KeyEvent.VK_LEFT, KeyEvent.ALT_DOWN_MASK), "back");
+        getRootPane().getActionMap().put("back", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                back();
+            }
+        });
+
+        CartBuffer.forUser(username).addListener(cartWriteListener);
+    }
+
+    public String getUsername() { return username; }
+
+    // ---------------------------------
+    // --- Navigation ---
+    // ---------------------------------
+
+    /** Home is the root: showing it clears the back stack. */
+    public void showHome() {
+        backStack.clear();
+        current = null;
+        show(HOME, () -> new homePage(this));
+    }
+
+    public void showCart() {
+        show(CART, () -> new cartpage(this));
+    }
+
+    public void showAccount() {
+        show(ACCOUNT, () -> new AccountPage(this));
+    }
+
+    public void showProduct(Product product) {
+        ProductPage page = productPages.get(product.getId());
+        if (page == null || page.getProduct() != product) {
+            // New product, or the catalog has a newer copy of it
+            if (page != null) {
+                removePage(PRODUCT_PREFIX + product.getId());
+            }
+            page = new ProductPage(this, product);
+            productPages.put(product.getId(), page);
+            addPage(PRODUCT_PREFIX + product.getId(), page);
+            evictProductPages();
+        }
+        show(PRODUCT_PREFIX + product.getId(), null);
+    }
+
+    /** Checkout always starts from a fresh form for the current cart total. */
+    public void showPayment(double subtotal) {
+        removePage(PAYMENT);
+        backStack.remove(PAYMENT);
+        addPage(PAYMENT, new PaymentPage(this, subtotal));
+        show(PAYMENT, null);
+    }
+
+    /** Returns to the previous page, or home if there is none. */
+    public void back() {
+        while (!backStack.isEmpty()) {
+            String previous = backStack.pop();
+            if (pages.containsKey(previous)) {
+                current = null; // Do not push the page we are leaving
+                show(previous, null);
+                return;
+            }
+        }
+        showHome();
+    }
+
+    /** Closes the store window (the login screen is a separate window). */
+    public void logout() {
+        CartBuffer buffer = CartBuffer.forUser(username);
+        buffer.removeListener(cartWriteListener);
+        buffer.flushAsync(); // Don't wait for the flush timer
+        dispose();
+    }
+
+    private void show(String name, Supplier<JComponent> factory) {
+        if (!pages.containsKey(name)) {
+            addPage(name, factory.get());
+        }
+        if (current != null && !current.equals(name)) {
+            backStack.push(current);
+        }
+        current = name;
+        cards.show(cardPanel, name);
+
+        JComponent page = pages.get(name);
+        if (page instanceof StorePage) {
+            setTitle(((StorePage) page).getPageTitle());
+            ((StorePage) page).onPageShown();
+        }
+    }
+
+    private void addPage(String name, JComponent page) {
+        pages.put(name, page);
+        cardPanel.add(page, name);
+    }
+
+    private void removePage(String name) {
+        JComponent page = pages.remove(name);
+        if (page != null) {
+            cardPanel.remove(page);
+        }
+    }
+
+    private void evictProductPages() {
+        Iterator<Map.Entry<Integer, ProductPage>> it = productPages.entrySet().iterator();
+        while (productPages.size() > MAX_PRODUCT_PAGES && it.hasNext()) {
+            Map.Entry<Integer, ProductPage> eldest = it.next();
+            String name = PRODUCT_PREFIX + eldest.getKey();
+            if (name.equals(current)) {
+                continue;
+            }
+            it.remove();
+            removePage(name);
+        }
+    }
+
+    /**
+     * EDT. Marks the cart stale and shows the failure on the product pages and in a dialog.
+     * rejected lists the products whose changes were dropped, or is null if all changes are
+     * still pending.
+     */
+    private void cartWriteFailed(String message, List<Integer> rejected) {
+        cartChanged();
+        for (ProductPage page : productPages.values()) {
+            if (rejected == null) {
+                page.cartWriteFailed();
+            } else if (rejected.contains(page.getProduct().getId())) {
+                page.cartWriteRejected();
+            }
+        }
+        JOptionPane.showMessageDialog(this, message, "Cart Not Saved", JOptionPane.ERROR_MESSAGE);
+        if (rejected != null && CART.equals(current)) {
+            ((StorePage) pages.get(CART)).onPageShown(); // Show what was actually saved
+        }
+    }
+
+    // ---------------------------------
+    // --- Stale Data Flags ---
+    // ---------------------------------
+
+    /** The cart contents changed; the cart page reloads next time it is shown. */
+    public void cartChanged() {
+        cartStale = true;
+    }
+
+    /** An order was placed or reviewed; the cart and account pages reload on their next visit. */
+    public void ordersChanged() {
+        cartStale = true;
+        ordersStale = true;
+    }
+
+    /** Returns and clears the cart flag. */
+    boolean takeCartStale() {
+        boolean stale = cartStale;
+        cartStale = false;
+        return stale;
+    }
+
+    /** Returns and clears the orders flag. */
+    boolean takeOrdersStale() {
+        boolean stale = ordersStale;
+        ordersStale = false;
+        return stale;
+    }
+}
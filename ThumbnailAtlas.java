@@ -0,0 +1,402 @@
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Optional packed file holding every product's card thumbnail, so the first paint of the
+ * home shelves reads one memory-mapped file instead of opening dozens of JPEGs.
+ *
+ * Layout: a header (magic, version, entry count), a fixed-size index entry per product
+ * (product id, thumbnail key, blob offset, length, width, height) and then the JPEG bytes
+ * of the CARD renditions from the {@link ThumbnailStore}. The index is read once on open.
+ *
+ * Enable with -Dsareestore.atlas.enabled=true; files are named after thumbnails/cards.atlas
+ * (-Dsareestore.atlas.file=PATH) with a version number, e.g. cards.3.atlas. The atlas is
+ * rebuilt in the background when the catalog no longer matches it, copying unchanged blobs
+ * from the previous file. Each rebuild writes the next version and switches the mapping over,
+ * so a file is never replaced while it is mapped (Windows refuses that); older versions are
+ * deleted once nothing maps them.
+ *
+ * A mapping is limited to 2 GB. Thumbnails that do not fit are indexed with no blob and are
+ * loaded from the thumbnail store as if the atlas were off.
+ */
+public class ThumbnailAtlas {
+
+    public static final boolean ENABLED = Boolean.getBoolean("sareestore.atlas.enabled");
+
+    private static final File FILE = new File(System.getProperty("sareestore.atlas.file",
+        new File(System.getProperty("sareestore.thumbnails.dir", "thumbnails"), "cards.atlas").getPath()))
+        .getAbsoluteFile();
+
+    // FILE's name split around the version number: "cards" + ".3" + ".atlas"
+    private static final String PREFIX;
+    private static final String SUFFIX;
+
+    static {
+        String name = FILE.getName();
+        int dot = name.lastIndexOf('.');
+        PREFIX = dot > 0 ? name.substring(0, dot) : name;
+        SUFFIX = dot > 0 ? name.substring(dot) : "";
+    }
+
+    // Largest file a single MappedByteBuffer can cover
+    private static final long MAX_FILE_BYTES = Integer.MAX_VALUE;
+
+    private static final int MAGIC = 0x5341544C; // "SATL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int KEY_BYTES = 64;
+    private static final int ENTRY_BYTES = 4 + KEY_BYTES + 8 + 4 + 2 + 2;
+
+    private static volatile Atlas current;
+    private static volatile boolean opened = false;
+
+    // Latest catalog waiting for the rebuilder; non-null while a check is queued
+    private static final AtomicReference<CatalogSnapshot> pending = new AtomicReference<>();
+    private static final ExecutorService REBUILDER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "thumbnail-atlas");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private ThumbnailAtlas() {
+    }
+
+    /**
+     * Decodes the product's card thumbnail from the atlas; null if the atlas is disabled,
+     * missing, or holds no entry for this product's current thumbnail key.
+     */
+    public static BufferedImage read(Product product) {
+        if (!ENABLED || product.getThumbnailKey() == null) {
+            return null;
+        }
+        Atlas atlas = atlas();
+        if (atlas == null) {
+            return null;
+        }
+        Entry entry = atlas.index.get(product.getId());
+        if (entry == null || entry.length == 0 || !entry.key.equals(product.getThumbnailKey())) {
+            return null;
+        }
+        try {
+            return ImageIO.read(new BufferInputStream(atlas.blob(entry)));
+        } catch (IOException e) {
+            System.err.println("Corrupt atlas entry for product " + product.getId() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Checks the atlas against the given catalog on the rebuilder thread and rebuilds it there
+     * if it no longer matches. Returns at once; calls made while a check is queued coalesce
+     * into one check of the latest catalog.
+     */
+    public static void refreshAsync(CatalogSnapshot snapshot) {
+        if (!ENABLED) {
+            return;
+        }
+        if (pending.getAndSet(snapshot) == null) {
+            REBUILDER.execute(() -> {
+                List<Product> products = pending.getAndSet(null).getProducts();
+                if (isCurrent(atlas(), products)) {
+                    return;
+                }
+                try {
+                    rebuild(products);
+                } catch (IOException e) {
+                    System.err.println("Could not rebuild thumbnail atlas: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes the next version of the atlas for the given products and switches to it. Blobs
+     * whose thumbnail key is unchanged are copied from the current atlas; the rest are read
+     * from the thumbnail store. Products without a stored CARD rendition are left out.
+     */
+    public static synchronized void rebuild(List<Product> products) throws IOException {
+        Atlas previous = atlas();
+        List<Entry> entries = new ArrayList<>();
+        List<ByteBuffer> blobs = new ArrayList<>();
+        long size = HEADER_BYTES;
+        int overflow = 0;
+
+        for (Product p : products) {
+            String key = p.getThumbnailKey();
+            if (key == null || key.length() != KEY_BYTES) {
+                continue;
+            }
+            Entry old = previous != null ? previous.index.get(p.getId()) : null;
+            ByteBuffer blob;
+            int width;
+            int height;
+            if (old != null && old.length > 0 && old.key.equals(key)) {
+                blob = previous.blob(old);
+                width = old.width;
+                height = old.height;
+            } else {
+                File rendition = new File(ThumbnailStore.pathFor(key, ThumbnailStore.Rendition.CARD));
+                if (!rendition.isFile()) {
+                    continue;
+                }
+                blob = ByteBuffer.wrap(Files.readAllBytes(rendition.toPath()));
+                width = ThumbnailStore.Rendition.CARD.size;
+                height = ThumbnailStore.Rendition.CARD.size;
+            }
+            size += ENTRY_BYTES;
+            if (size + blob.remaining() > MAX_FILE_BYTES) {
+                // Over the mapping limit: index it without a blob so the atlas still counts as current
+                entries.add(new Entry(p.getId(), key, 0, 0, width, height));
+                blobs.add(ByteBuffer.allocate(0));
+                overflow++;
+                continue;
+            }
+            size += blob.remaining();
+            entries.add(new Entry(p.getId(), key, 0, blob.remaining(), width, height));
+            blobs.add(blob);
+        }
+        if (overflow > 0) {
+            System.err.println("Thumbnail atlas is full (2 GB); " + overflow + " thumbnails are read from the store.");
+        }
+
+        File dir = FILE.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("Cannot create atlas directory " + dir);
+        }
+        int version = latestVersion() + 1;
+        Path temp = Files.createTempFile(dir.toPath(), "atlas", ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + entries.size() * ENTRY_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putInt(entries.size());
+                long offset = header.capacity();
+                for (Entry e : entries) {
+                    header.putInt(e.productId);
+                    header.put(e.key.getBytes(StandardCharsets.US_ASCII));
+                    header.putLong(offset).putInt(e.length).putShort((short) e.width).putShort((short) e.height);
+                    offset += e.length;
+                }
+                header.flip();
+                writeFully(out, header);
+                for (ByteBuffer blob : blobs) {
+                    writeFully(out, blob);
+                }
+                out.force(true);
+            }
+            // A fresh name, never the mapped file; the move only makes a complete file visible
+            Files.move(temp, versionFile(version).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        current = map(versionFile(version));
+        deleteOldVersions();
+    }
+
+    private static boolean isCurrent(Atlas atlas, List<Product> products) {
+        int expected = 0;
+        for (Product p : products) {
+            String key = p.getThumbnailKey();
+            if (key == null || key.length() != KEY_BYTES) {
+                continue;
+            }
+            expected++;
+            Entry entry = atlas != null ? atlas.index.get(p.getId()) : null;
+            if (entry == null || !entry.key.equals(key)) {
+                return false;
+            }
+        }
+        return atlas != null && atlas.index.size() == expected;
+    }
+
+    private static Atlas atlas() {
+        if (!opened) {
+            synchronized (ThumbnailAtlas.class) {
+                if (!opened) {
+                    try {
+                        int version = latestVersion();
+                        if (version > 0) {
+                            current = map(versionFile(version));
+                            deleteOldVersions();
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Ignoring unreadable thumbnail atlas " + FILE + ": " + e.getMessage());
+                    }
+                    opened = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static File versionFile(int version) {
+        return new File(FILE.getParentFile(), PREFIX + "." + version + SUFFIX);
+    }
+
+    /** Highest version on disk, or 0 if there is no atlas yet. */
+    private static int latestVersion() {
+        int latest = 0;
+        String[] names = FILE.getParentFile().list();
+        if (names != null) {
+            for (String name : names) {
+                latest = Math.max(latest, versionOf(name));
+            }
+        }
+        return latest;
+    }
+
+    private static int versionOf(String name) {
+        if (!name.startsWith(PREFIX + ".") || !name.endsWith(SUFFIX)) {
+            return 0;
+        }
+        String digits = name.substring(PREFIX.length() + 1, name.length() - SUFFIX.length());
+        if (digits.isEmpty() || digits.length() > 9 || !digits.chars().allMatch(Character::isDigit)) {
+            return 0;
+        }
+        return Integer.parseInt(digits);
+    }
+
+    // Older versions are no longer mapped once the new one is current; a file some other
+    // process still maps (Windows) stays until a later rebuild or start-up
+    private static void deleteOldVersions() {
+        int latest = latestVersion();
+        String[] names = FILE.getParentFile().list();
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            int version = versionOf(name);
+            if (version > 0 && version < latest) {
+                try {
+                    Files.deleteIfExists(new File(FILE.getParentFile(), name).toPath());
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static Atlas map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > MAX_FILE_BYTES) {
+                throw new IOException("larger than 2 GB");
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("not a version " + VERSION + " atlas");
+            }
+            int count = buffer.getInt(8);
+            Map<Integer, Entry> index = new HashMap<>(count * 2);
+            byte[] key = new byte[KEY_BYTES];
+            int pos = HEADER_BYTES;
+            for (int i = 0; i < count; i++, pos += ENTRY_BYTES) {
+                ByteBuffer e = buffer.duplicate();
+                e.position(pos);
+                int productId = e.getInt();
+                e.get(key);
+                long offset = e.getLong();
+                int length = e.getInt();
+                if (offset + length > buffer.capacity()) {
+                    throw new IOException("entry " + productId + " is out of bounds");
+                }
+                index.put(productId, new Entry(productId, new String(key, StandardCharsets.US_ASCII),
+                    offset, length, e.getShort(), e.getShort()));
+            }
+            return new Atlas(buffer, Collections.unmodifiableMap(index));
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    // ---------------------------------
+    // --- Atlas File and Index ---
+    // ---------------------------------
+
+    private static final class Atlas {
+        final MappedByteBuffer buffer;
+        final Map<Integer, Entry> index;
+
+        Atlas(MappedByteBuffer buffer, Map<Integer, Entry> index) {
+            this.buffer = buffer;
+            this.index = index;
+        }
+
+        // A private view of one blob, so concurrent readers never share a position
+        ByteBuffer blob(Entry entry) {
+            ByteBuffer view = buffer.duplicate();
+            view.position((int) entry.offset);
+            view.limit((int) (entry.offset + entry.length));
+            return view.slice();
+        }
+    }
+
+    private static final class Entry {
+        final int productId;
+        final String key;
+        final long offset;
+        final int length;
+        final int width;
+        final int height;
+
+        Entry(int productId, String key, long offset, int length, int width, int height) {
+            this.productId = productId;
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    // Lets ImageIO decode straight from the mapped file without copying the blob
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * One-off command that generates {@link ThumbnailStore} renditions for products added before
+ * thumbnails were made at upload time, then records their keys in Products.thumbnail_key.
+ *
+ * Usage: java ThumbnailBackfill [--all]
+ * By default only rows without a thumbnail_key are processed; --all regenerates every row
+ * (files already in the store are reused). With -Dsareestore.atlas.enabled=true the
+ * thumbnail atlas is repacked afterwards.
+ */
+public class ThumbnailBackfill {
+
+    public static void main(String[] args) {
+        boolean all = args.length > 0 && "--all".equals(args[0]);
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        long start = System.currentTimeMillis();
+
+        try {
+            Map<Integer, String> imagePaths = loadImagePaths(all);
+            System.out.println("Generating thumbnails for " + imagePaths.size() + " products on " + threads + " threads...");
+
+            // Decoding and scaling is the slow part, so it runs in parallel; the DB update is one batch
+            Map<Integer, Future<String>> pending = new LinkedHashMap<>();
+            for (Map.Entry<Integer, String> entry : imagePaths.entrySet()) {
+                String path = entry.getValue();
+                pending.put(entry.getKey(), workers.submit(() -> ThumbnailStore.generate(path)));
+            }
+
+            List<Integer> ids = new ArrayList<>();
+            List<String> keys = new ArrayList<>();
+            int failed = 0;
+            for (Map.Entry<Integer, Future<String>> entry : pending.entrySet()) {
+                try {
+                    keys.add(entry.getValue().get());
+                    ids.add(entry.getKey());
+                } catch (ExecutionException e) {
+                    failed++;
+                    System.err.println("Product " + entry.getKey() + " (" + imagePaths.get(entry.getKey()) + "): "
+                        + e.getCause().getMessage());
+                }
+            }
+
+            saveKeys(ids, keys);
+            System.out.println("Done: " + ids.size() + " updated, " + failed + " failed in "
+                + (System.currentTimeMillis() - start) + " ms.");
+
+            if (ThumbnailAtlas.ENABLED) {
+                ThumbnailAtlas.rebuild(CatalogCache.get().getProducts());
+            }
+        } catch (IOException e) {
+            System.err.println("Could not rebuild thumbnail atlas: " + e.getMessage());
+        } catch (SQLException e) {
+            System.err.println("Thumbnail backfill failed: " + e.getMessage());
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static Map<Integer, String> loadImagePaths(boolean all) throws SQLException {
+        String sql = "SELECT product_id, image_path FROM Products WHERE image_path IS NOT NULL AND image_path <> ''"
+            + (all ? "" : " AND thumbnail_key IS NULL") + " ORDER BY product_id";
+        Map<Integer, String> paths = new LinkedHashMap<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                paths.put(rs.getInt("product_id"), rs.getString("image_path"));
+            }
+        }
+        return paths;
+    }
+
+    private static void saveKeys(List<Integer> ids, List<String> keys) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement("UPDATE Products SET thumbnail_key = ? WHERE product_id = ?")) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < ids.size(); i++) {
+                ps.setString(1, keys.get(i));
+                ps.setInt(2, ids.get(i));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+import javax.swing.JLabel;
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.event.HierarchyEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes and scales product images on a small worker pool so building a shelf never
+ * waits on JPEG decoding. The label shows a placeholder at once and the finished
+ * thumbnail is swapped in on the EDT. Work is cancelled when the label is disposed
+ * or re-bound to another image.
+ */
+public class ThumbnailLoader {
+
+    private static final String TASK_KEY = "ThumbnailLoader.task";
+    private static final String LISTENER_KEY = "ThumbnailLoader.listener";
+
+    private static final ExecutorService WORKERS = createWorkers();
+
+    private ThumbnailLoader() {
+    }
+
+    /**
+     * Puts the thumbnail for imagePath into the label, immediately if it is already cached,
+     * otherwise after a background decode. Must be called on the EDT.
+     */
+    public static void load(JLabel label, String imagePath, int width, int height) {
+        load(label, imagePath, width, height, "[Image Error]");
+    }
+
+    /** Same as {@link #load(JLabel, String, int, int)} with a custom text for unreadable images. */
+    public static void load(JLabel label, String imagePath, int width, int height, String errorText) {
+        start(label, null, null, imagePath, width, height, errorText);
+    }
+
+    /** Loads the product's stored rendition with the default error text. */
+    public static void load(JLabel label, Product product, ThumbnailStore.Rendition rendition) {
+        load(label, product, rendition, "[Image Error]");
+    }
+
+    /**
+     * Loads the product's pre-scaled rendition from the {@link ThumbnailStore}, falling back
+     * to scaling the original image if the product has none yet. Must be called on the EDT.
+     */
+    public static void load(JLabel label, Product product, ThumbnailStore.Rendition rendition, String errorText) {
+        String stored = ThumbnailStore.pathFor(product.getThumbnailKey(), rendition);
+        // Only card thumbnails are packed into the atlas
+        Product atlasProduct = rendition == ThumbnailStore.Rendition.CARD && stored != null ? product : null;
+        start(label, atlasProduct, stored, product.getImagePath(), rendition.size, rendition.size, errorText);
+    }
+
+    private static void start(JLabel label, Product atlasProduct, String storedPath, String imagePath,
+                              int width, int height, String errorText) {
+        cancel(label);
+        installCancelOnDispose(label);
+
+        BufferedImage cached = storedPath != null ? ImageCache.peek(storedPath, width, height) : null;
+        if (cached == null) {
+            cached = ImageCache.peek(imagePath, width, height);
+        }
+        if (cached != null) {
+            showImage(label, cached);
+            return;
+        }
+
+        label.setText(null);
+        label.setIcon(new PlaceholderIcon(width, height));
+
+        // The task only touches the label if it is still the label's current task
+        LoadTask task = new LoadTask(label, atlasProduct, storedPath, imagePath, width, height, errorText);
+        label.putClientProperty(TASK_KEY, task);
+        task.future = WORKERS.submit(task);
+    }
+
+    /** Cancels any pending load for this label. */
+    public static void cancel(JLabel label) {
+        Object previous = label.getClientProperty(TASK_KEY);
+        if (previous instanceof LoadTask) {
+            ((LoadTask) previous).cancel();
+        }
+        label.putClientProperty(TASK_KEY, null);
+    }
+
+    private static void installCancelOnDispose(JLabel label) {
+        if (label.getClientProperty(LISTENER_KEY) != null) {
+            return;
+        }
+        label.putClientProperty(LISTENER_KEY, Boolean.TRUE);
+        label.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0 && !label.isDisplayable()) {
+                cancel(label);
+            }
+        });
+    }
+
+    private static void showImage(JLabel label, BufferedImage img) {
+        label.setText(null);
+        label.setIcon(new ImageIcon(img));
+    }
+
+    private static void showError(JLabel label, String errorText) {
+        label.setIcon(null);
+        label.setText(errorText);
+    }
+
+    private static ExecutorService createWorkers() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "thumbnail-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1); // Keep the EDT snappy
+            return t;
+        });
+    }
+
+    // ---------------------------------
+    // --- Background Task ---
+    // ---------------------------------
+
+    private static final class LoadTask implements Runnable {
+        private final JLabel label;
+        private final Product atlasProduct;
+        private final String storedPath;
+        private final String imagePath;
+        private final int width;
+        private final int height;
+        private final String errorText;
+        private volatile boolean cancelled = false;
+        volatile Future<?> future;
+
+        LoadTask(JLabel label, Product atlasProduct, String storedPath, String imagePath,
+                 int width, int height, String errorText) {
+            this.label = label;
+            this.atlasProduct = atlasProduct;
+            this.storedPath = storedPath;
+            this.imagePath = imagePath;
+            this.width = width;
+            this.height = height;
+            this.errorText = errorText;
+        }
+
+        void cancel() {
+            cancelled = true;
+            Future<?> f = future;
+            if (f != null) {
+                f.cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            BufferedImage img = decode();
+            SwingUtilities.invokeLater(() -> {
+                if (cancelled || label.getClientProperty(TASK_KEY) != this) {
+                    return;
+                }
+                label.putClientProperty(TASK_KEY, null);
+                if (img != null) {
+                    showImage(label, img);
+                } else {
+                    showError(label, errorText);
+                }
+            });
+        }
+
+        // Prefer the atlas, then the stored rendition; scale the original only if neither exists
+        private BufferedImage decode() {
+            if (atlasProduct != null) {
+                BufferedImage img = ThumbnailAtlas.read(atlasProduct);
+                if (img != null) {
+                    ImageCache.put(new ImageCache.Key(storedPath, width, height), img);
+                    return img;
+                }
+            }
+            if (storedPath != null && new File(storedPath).isFile()) {
+                BufferedImage img = ImageCache.getScaled(storedPath, width, height);
+                if (img != null) {
+                    return img;
+                }
+            }
+            return ImageCache.getScaled(imagePath, width, height);
+        }
+    }
+
+    // Light grey box shown while a thumbnail is being prepared
+    private static final class PlaceholderIcon implements Icon {
+        private final int width;
+        private final int height;
+
+        PlaceholderIcon(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            g.setColor(new Color(242, 242, 242));
+            g.fillRect(x, y, width, height);
+            g.setColor(new Color(225, 225, 225));
+            g.drawRect(x, y, width - 1, height - 1);
+        }
+
+        @Override
+        public int getIconWidth() { return width; }
+
+        @Override
+        public int getIconHeight() { return height; }
+    }
+}
@@ -0,0 +1,136 @@
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content-addressed on-disk store of pre-scaled product images.
+ *
+ * Each source image is resized once (at upload or by {@link ThumbnailBackfill}) into the fixed
+ * {@link Rendition}s and written under thumbnails/ab/abcdef..._250.jpg, where the key is the
+ * SHA-256 of the source file. Products store that key in Products.thumbnail_key, so pages can
+ * load a rendition of the right size directly instead of scaling the full photo. Identical
+ * uploads share one set of files.
+ *
+ * The directory can be changed with -Dsareestore.thumbnails.dir=PATH.
+ */
+public class ThumbnailStore {
+
+    /** Fixed sizes generated for every product image. */
+    public enum Rendition {
+        CARD(250), DETAIL(500), ICON(64);
+
+        public final int size;
+
+        Rendition(int size) {
+            this.size = size;
+        }
+    }
+
+    private static final File ROOT = new File(System.getProperty("sareestore.thumbnails.dir", "thumbnails"));
+    private static final float JPEG_QUALITY = 0.9f;
+
+    private ThumbnailStore() {
+    }
+
+    /**
+     * Generates every rendition of the image at imagePath (skipping ones already on disk)
+     * and returns its content key. Safe to call from several threads at once.
+     */
+    public static String generate(String imagePath) throws IOException {
+        byte[] bytes = Files.readAllBytes(new File(imagePath).toPath());
+        String key = keyOf(bytes);
+
+        BufferedImage source = null;
+        for (Rendition rendition : Rendition.values()) {
+            File target = fileFor(key, rendition);
+            if (target.isFile()) {
+                continue;
+            }
+            if (source == null) {
+                source = ImageIO.read(new ByteArrayInputStream(bytes));
+                if (source == null) {
+                    throw new IOException("Unsupported image format: " + imagePath);
+                }
+            }
+            writeJpeg(ImageCache.scale(source, rendition.size, rendition.size), target);
+        }
+        return key;
+    }
+
+    /** Same as {@link #generate}, but logs and returns null if the image cannot be read. */
+    public static String generateOrNull(String imagePath) {
+        try {
+            return generate(imagePath);
+        } catch (IOException e) {
+            System.err.println("Could not generate thumbnails for " + imagePath + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Path of a stored rendition, or null if the product has no thumbnail key yet. */
+    public static String pathFor(String key, Rendition rendition) {
+        return key == null || key.isEmpty() ? null : fileFor(key, rendition).getPath();
+    }
+
+    private static File fileFor(String key, Rendition rendition) {
+        return new File(new File(ROOT, key.substring(0, 2)), key + "_" + rendition.size + ".jpg");
+    }
+
+    private static String keyOf(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // JPEG has no alpha, so flatten onto white; written to a temp file and moved into place
+    // so readers never see a half-written rendition.
+    private static void writeJpeg(BufferedImage img, File target) throws IOException {
+        BufferedImage rgb = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, rgb.getWidth(), rgb.getHeight());
+        g.drawImage(img, 0, 0, null);
+        g.dispose();
+
+        File dir = target.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("Cannot create thumbnail directory " + dir);
+        }
+        Path temp = Files.createTempFile(dir.toPath(), "thumb", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(rgb, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
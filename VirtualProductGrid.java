@@ -0,0 +1,204 @@
+import javax.swing.*;
+import javax.swing.event.ChangeListener;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A wrapping grid of product cards that only creates cards for the rows inside the enclosing
+ * scroll pane's viewport (plus a small buffer). Cards that scroll out are hidden and re-bound
+ * to the products scrolling in, so the component count stays flat however long the list is.
+ *
+ * Lays out like FlowLayout(LEFT, 30, 30): the column count follows the available width.
+ */
+@SuppressWarnings("serial")
+public class VirtualProductGrid extends JComponent {
+
+    private static final int GAP = 30;
+    private static final int BUFFER_ROWS = 1; // Built above and below the viewport
+    private static final int PREFETCH_ROWS = 2; // Ask for more products this close to the end
+
+    private final Consumer<Product> onOpen;
+    private final List<Product> products = new ArrayList<>(); // Grows in place as pages arrive
+
+    // Cards currently showing a product, keyed by product index; spare ones are hidden
+    private final Map<Integer, SareeCard> active = new HashMap<>();
+    private final ArrayDeque<SareeCard> spare = new ArrayDeque<>();
+
+    private JViewport viewport;
+    private final ChangeListener viewportListener = e -> updateVisibleCards();
+    private int columns = 1;
+    private Runnable nearEndListener;
+
+    public VirtualProductGrid(Consumer<Product> onOpen) {
+        this.onOpen = onOpen;
+        setLayout(null);
+        setOpaque(true);
+        setBackground(Color.WHITE);
+
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                updateVisibleCards();
+            }
+        });
+    }
+
+    /** Replaces the products shown; must be called on the EDT. */
+    public void setProducts(List<Product> products) {
+        this.products.clear();
+        this.products.addAll(products);
+        releaseAll();
+        revalidate();
+        repaint();
+        updateVisibleCards();
+    }
+
+    /** Adds products after the current ones (e.g. the next page); must be called on the EDT. */
+    public void appendProducts(List<Product> more) {
+        if (more.isEmpty()) {
+            return;
+        }
+        // Amortized O(page) per page: no copy of what is already loaded
+        int rowsBefore = rowsFor(products.size(), columns);
+        products.addAll(more);
+        if (rowsFor(products.size(), columns) != rowsBefore) {
+            revalidate(); // Only the height changes, and only when a row is added
+        }
+        updateVisibleCards();
+    }
+
+    /**
+     * Called (on the EDT) whenever the viewport comes within a couple of rows of the last
+     * product. Fires repeatedly while scrolling there, so the listener must ignore calls
+     * while a page is already loading.
+     */
+    public void setNearEndListener(Runnable listener) {
+        this.nearEndListener = listener;
+    }
+
+    public int getProductCount() { return products.size(); }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        int cols = getWidth() > 0 ? columnsFor(getWidth()) : columns;
+        int rows = rowsFor(products.size(), cols);
+        int width = GAP + SareeCard.WIDTH + GAP; // At least one column; wider parents add more
+        return new Dimension(width, GAP + rows * (SareeCard.HEIGHT + GAP));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (viewport != null) {
+            viewport.addChangeListener(viewportListener);
+        }
+        updateVisibleCards();
+    }
+
+    @Override
+    public void removeNotify() {
+        if (viewport != null) {
+            viewport.removeChangeListener(viewportListener);
+            viewport = null;
+        }
+        super.removeNotify();
+    }
+
+    // ---------------------------------
+    // --- Card Recycling ---
+    // ---------------------------------
+
+    @Override
+    public void doLayout() {
+        updateVisibleCards();
+    }
+
+    private void updateVisibleCards() {
+        int newColumns = columnsFor(getWidth());
+        if (newColumns != columns) {
+            columns = newColumns;
+            releaseAll(); // Every card moves to a new slot
+            revalidate(); // Preferred height depends on the column count
+        }
+
+        Rectangle visible = getVisibleRect();
+        if (products.isEmpty() || visible.isEmpty()) {
+            releaseAll();
+            return;
+        }
+
+        int rowHeight = SareeCard.HEIGHT + GAP;
+        int firstRow = Math.max(0, (visible.y - GAP) / rowHeight - BUFFER_ROWS);
+        int lastRow = (visible.y + visible.height) / rowHeight + BUFFER_ROWS;
+        int first = firstRow * columns;
+        int last = Math.min(products.size(), (lastRow + 1) * columns); // exclusive
+
+        // Recycle cards that left the range before binding new ones
+        Iterator<Map.Entry<Integer, SareeCard>> it = active.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, SareeCard> entry = it.next();
+            if (entry.getKey() < first || entry.getKey() >= last) {
+                entry.getValue().setVisible(false);
+                spare.push(entry.getValue());
+                it.remove();
+            }
+        }
+
+        for (int i = first; i < last; i++) {
+            if (active.containsKey(i)) {
+                continue;
+            }
+            SareeCard card = spare.poll();
+            if (card == null) {
+                card = new SareeCard(onOpen);
+                add(card);
+            }
+            card.bind(products.get(i));
+            int col = i % columns;
+            int row = i / columns;
+            card.setBounds(GAP + col * (SareeCard.WIDTH + GAP), GAP + row * rowHeight, SareeCard.WIDTH, SareeCard.HEIGHT);
+            card.setVisible(true);
+            card.validate();
+            active.put(i, card);
+        }
+        repaint();
+
+        if (nearEndListener != null && last >= products.size() - PREFETCH_ROWS * columns) {
+            nearEndListener.run();
+        }
+    }
+
+    private void releaseAll() {
+        for (SareeCard card : active.values()) {
+            card.setVisible(false);
+            spare.push(card);
+        }
+        active.clear();
+    }
+
+    private static int rowsFor(int count, int cols) {
+        return (count + cols - 1) / cols;
+    }
+
+    private static int columnsFor(int width) {
+        return Math.max(1, (width - GAP) / (SareeCard.WIDTH + GAP));
+    }
+}
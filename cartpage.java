@@ -1,34 +1,78 @@
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableCellEditor;
+import javax.swing.table.TableCellRenderer;
 import java.awt.*;
 import java.sql.*;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
 
 @SuppressWarnings("serial")
-public class cartpage extends JFrame {
+public class cartpage extends JPanel implements StorePage {
 
+
+    private final StoreWindow window;
     private final String username;
     private final DecimalFormat df = new DecimalFormat("₹#,##0.00");
-    private JPanel itemsPanel;
+    private static final int ROW_HEIGHT = 50;
+
     private JLabel totalLabel;
-    private double grandTotal = 0.0;
+    private final CartBuffer cartBuffer;
+    // The cart as last read plus the changes made here; the table follows it row by row
+    private final CartModel cartModel = new CartModel();
+    private final CartTableModel tableModel;
+    private final JTable cartTable;
+
+    // The table, or a message while loading / when the cart is empty
+    private final CardLayout itemsCards = new CardLayout();
+    private final JPanel itemsPanel = new JPanel(itemsCards);
+    private final JLabel messageLabel = new JLabel("", SwingConstants.CENTER);
+
+    public cartpage(StoreWindow window) {
+        this.window = window;
+        this.username = window.getUsername();
+        this.cartBuffer = CartBuffer.forUser(username);
+        this.tableModel = new CartTableModel(cartModel, this::changeQuantity);
+        this.cartTable = createCartTable();
+        cartModel.addListener(new CartModel.Listener() {
+            @Override
+            public void linesReset() {
+                showItems();
+            }
+
+            @Override
+            public void lineUpdated(int index, CartModel.Line line) {
+                updateTotal();
+            }
 
-    public cartpage(String username) {
-        this.username = username;
+            @Override
+            public void lineRemoved(int index, CartModel.Line line) {
+                showItems();
+            }
+        });
 
-        setTitle("SareeStore - My Cart");
-        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-        setExtendedState(JFrame.MAXIMIZED_BOTH);
-        getContentPane().setBackground(Color.WHITE);
+        setBackground(Color.WHITE);
         setLayout(new BorderLayout());
 
         add(createTopBar(), BorderLayout.NORTH);
         add(createMainCartPanel(), BorderLayout.CENTER);
         add(createFooterPanel(), BorderLayout.SOUTH);
 
+        window.takeCartStale(); // The first load below is already current
         loadCartItems();
+    }
 
-        setVisible(true);
+    @Override
+    public String getPageTitle() { return "SareeStore - My Cart"; }
+
+    /** Reloads the cart only if something was added or ordered since it was last shown. */
+    @Override
+    public void onPageShown() {
+        if (window.takeCartStale()) {
+            loadCartItems();
+        }
     }
 
     private JPanel createTopBar() {
@@ -45,11 +89,7 @@ public class cartpage extends JFrame {
         backBtn.setFont(new Font("Arial", Font.BOLD, 14));
         backBtn.setFocusPainted(false);
         backBtn.setBackground(new Color(240, 240, 240));
-        backBtn.addActionListener(e -> {
-            // Uncommmented assuming homePage.java is available
-            new homePage(username); 
-            dispose();
-        });
+        backBtn.addActionListener(e -> window.showHome());
 
         JPanel nav = new JPanel(new FlowLayout(FlowLayout.RIGHT, 25, 5));
         nav.setBackground(Color.WHITE);
@@ -64,18 +104,60 @@ public class cartpage extends JFrame {
         mainPanel.setBackground(Color.WHITE);
         mainPanel.setBorder(new EmptyBorder(20, 100, 20, 100));
 
-        itemsPanel = new JPanel();
-        itemsPanel.setLayout(new BoxLayout(itemsPanel, BoxLayout.Y_AXIS));
-        itemsPanel.setBackground(Color.WHITE);
-
-        JScrollPane scrollPane = new JScrollPane(itemsPanel);
+        // A JTable paints only the rows in view, however many lines the cart has
+        JScrollPane scrollPane = new JScrollPane(cartTable);
         scrollPane.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200)));
+        scrollPane.getViewport().setBackground(Color.WHITE);
         scrollPane.getVerticalScrollBar().setUnitIncrement(16);
 
-        mainPanel.add(scrollPane, BorderLayout.CENTER);
+        messageLabel.setFont(new Font("Arial", Font.ITALIC, 18));
+        messageLabel.setVerticalAlignment(SwingConstants.TOP);
+        messageLabel.setBorder(new EmptyBorder(50, 0, 0, 0));
+        JPanel messagePanel = new JPanel(new BorderLayout());
+        messagePanel.setBackground(Color.WHITE);
+        messagePanel.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200)));
+        messagePanel.add(messageLabel, BorderLayout.CENTER);
+
+        itemsPanel.setBackground(Color.WHITE);
+        itemsPanel.add(scrollPane, "table");
+        itemsPanel.add(messagePanel, "message");
+
+        mainPanel.add(itemsPanel, BorderLayout.CENTER);
         return mainPanel;
     }
 
+    private JTable createCartTable() {
+        JTable table = new JTable(tableModel);
+        table.setRowHeight(ROW_HEIGHT);
+        table.setFont(new Font("Arial", Font.PLAIN, 14));
+        table.setBackground(Color.WHITE);
+        table.setGridColor(new Color(220, 220, 220));
+        table.setShowVerticalLines(false);
+        table.setFillsViewportHeight(true);
+        table.setRowSelectionAllowed(false);
+        table.setSurrendersFocusOnKeystroke(true);
+        table.getTableHeader().setReorderingAllowed(false);
+        table.getTableHeader().setFont(new Font("Arial", Font.BOLD, 16));
+        table.getTableHeader().setBackground(new Color(240, 240, 240));
+        table.putClientProperty("terminateEditOnFocusLost", Boolean.TRUE);
+
+        DefaultTableCellRenderer nameRenderer = new DefaultTableCellRenderer();
+        nameRenderer.setBorder(new EmptyBorder(0, 10, 0, 0));
+        table.getColumnModel().getColumn(CartTableModel.ITEM).setCellRenderer(nameRenderer);
+
+        table.getColumnModel().getColumn(CartTableModel.PRICE).setCellRenderer(new MoneyRenderer(false));
+        table.getColumnModel().getColumn(CartTableModel.SUBTOTAL).setCellRenderer(new MoneyRenderer(true));
+
+        DefaultTableCellRenderer qtyRenderer = new DefaultTableCellRenderer();
+        qtyRenderer.setHorizontalAlignment(SwingConstants.CENTER);
+        table.getColumnModel().getColumn(CartTableModel.QUANTITY).setCellRenderer(qtyRenderer);
+        table.getColumnModel().getColumn(CartTableModel.QUANTITY).setCellEditor(new QuantityCellEditor());
+
+        table.getColumnModel().getColumn(CartTableModel.ACTIONS).setCellRenderer(new RemoveButtonRenderer());
+        table.getColumnModel().getColumn(CartTableModel.ACTIONS).setCellEditor(new RemoveButtonEditor());
+        return table;
+    }
+
     private JPanel createFooterPanel() {
         JPanel footerPanel = new JPanel(new BorderLayout());
         footerPanel.setBackground(new Color(230, 230, 230));
@@ -99,14 +181,9 @@ public class cartpage extends JFrame {
         checkoutBtn.setBorder(BorderFactory.createEmptyBorder(10, 25, 10, 25));
 
         checkoutBtn.addActionListener(e -> {
-            if (grandTotal > 0) {
-                // ⭐️ FIX APPLIED: This line is now responsible for opening PaymentPage.
-                // Ensure PaymentPage.java is available and has a constructor PaymentPage(String, double).
-                new PaymentPage(username, grandTotal); 
-                
-                // The temporary placeholder message is removed.
-                
-                dispose();
+            if (cartModel.getGrandTotal() > 0) {
+                cartBuffer.flushAsync(); // Written while the payment form is filled in; the order flushes again
+                window.showPayment(cartModel.getGrandTotal());
             } else {
                 JOptionPane.showMessageDialog(this,
                     "Your cart is empty. Add some sarees first!",
@@ -120,134 +197,221 @@ public class cartpage extends JFrame {
     }
 
     private void loadCartItems() {
-        itemsPanel.removeAll();
-        grandTotal = 0.0;
+        if (cartTable.isEditing()) {
+            cartTable.getCellEditor().cancelCellEditing();
+        }
+        showMessage("Loading your cart...");
 
-        String sql = "SELECT c.cart_item_id, c.quantity, p.name, p.price " +
+        // Buffered changes are written first so the read sees them
+        AsyncDataAccess.onEdt(AsyncDataAccess.call(() -> {
+                cartBuffer.flush();
+                try (Connection conn = DBConnection.getConnection()) {
+                    return queryCartItems(conn);
+                }
+            }),
+            cartModel::setLines,
+            error -> {
+                showMessage("");
+                JOptionPane.showMessageDialog(this,
+                    "Database Error loading cart: " + error.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+                error.printStackTrace();
+            });
+    }
+
+    /** Runs on a background thread. */
+    private List<CartModel.Line> queryCartItems(Connection conn) throws SQLException {
+        String sql = "SELECT c.cart_item_id, c.product_id, c.quantity, p.name, p.price " +
                      "FROM Cart c JOIN Products p ON c.product_id = p.product_id " +
                      "WHERE c.username = ? AND c.order_id IS NULL";
 
-        try (Connection conn = DBConnection.getConnection(); 
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
+        List<CartModel.Line> lines = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, username);
-            ResultSet rs = ps.executeQuery();
-
-            if (!rs.isBeforeFirst()) {
-                JLabel emptyLabel = new JLabel("Your shopping cart is empty.", SwingConstants.CENTER);
-                emptyLabel.setFont(new Font("Arial", Font.ITALIC, 18));
-                itemsPanel.add(Box.createVerticalStrut(50));
-                emptyLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-                itemsPanel.add(emptyLabel);
-                itemsPanel.add(Box.createVerticalGlue());
-            } else {
-                itemsPanel.add(createHeaderRow());
-                itemsPanel.add(Box.createVerticalStrut(10));
-
+            try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    int cartItemId = rs.getInt("cart_item_id");
-                    String name = rs.getString("name");
-                    double price = rs.getDouble("price");
-                    int quantity = rs.getInt("quantity");
-
-                    double subtotal = price * quantity;
-                    grandTotal += subtotal;
-
-                    itemsPanel.add(createCartItemRow(cartItemId, name, price, quantity, subtotal));
-                    itemsPanel.add(Box.createVerticalStrut(5));
+                    lines.add(new CartModel.Line(
+                        rs.getInt("cart_item_id"),
+                        rs.getInt("product_id"),
+                        rs.getString("name"),
+                        rs.getDouble("price"),
+                        rs.getInt("quantity")
+                    ));
                 }
             }
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this,
-                "Database Error loading cart: " + ex.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
         }
+        return lines;
+    }
 
-        totalLabel.setText(df.format(grandTotal));
-        itemsPanel.revalidate();
-        itemsPanel.repaint();
+    /** Shows the table, or the empty-cart message once the last line is gone. */
+    private void showItems() {
+        if (cartModel.isEmpty()) {
+            showMessage("Your shopping cart is empty.");
+        } else {
+            itemsCards.show(itemsPanel, "table");
+        }
+        updateTotal();
     }
 
-    private JPanel createHeaderRow() {
-        JPanel header = new JPanel(new GridLayout(1, 5, 10, 0));
-        header.setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, Color.GRAY));
-        header.setBackground(new Color(240, 240, 240));
-        header.setMaximumSize(new Dimension(Integer.MAX_VALUE, 40));
+    private void showMessage(String text) {
+        messageLabel.setText(text);
+        itemsCards.show(itemsPanel, "message");
+    }
 
-        String[] titles = {"Item", "Price", "Quantity", "Subtotal", "Actions"};
-        for (String title : titles) {
-            JLabel label = new JLabel(title, SwingConstants.CENTER);
-            label.setFont(new Font("Arial", Font.BOLD, 16));
-            label.setBorder(new EmptyBorder(5, 0, 5, 0));
-            header.add(label);
+    private void updateTotal() {
+        totalLabel.setText(df.format(cartModel.getGrandTotal()));
+    }
+
+    /** Called by the table's quantity editor; writes only this line. */
+    private void changeQuantity(CartModel.Line line, int quantity) {
+        if (cartModel.setQuantity(line.productId, quantity)) {
+            cartBuffer.setQuantity(line.productId, quantity, line.name, line.price);
         }
-        return header;
     }
 
-    private JPanel createCartItemRow(int cartItemId, String name, double price, int quantity, double subtotal) {
-        JPanel row = new JPanel(new GridLayout(1, 5, 10, 0));
-        row.setBackground(Color.WHITE);
-        row.setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, new Color(220, 220, 220)));
-        row.setMaximumSize(new Dimension(Integer.MAX_VALUE, 60));
+    /** Removes just this row and adjusts the total; the delete is written by the cart buffer. */
+    private void removeItem(CartModel.Line line) {
+        int confirm = JOptionPane.showConfirmDialog(this,
+            "Are you sure you want to remove this item from your cart?",
+            "Confirm Removal",
+            JOptionPane.YES_NO_OPTION);
+
+        if (confirm == JOptionPane.YES_OPTION && cartModel.remove(line.productId)) {
+            cartBuffer.remove(line.productId);
+        }
+    }
 
-        JLabel nameLabel = new JLabel(name);
-        nameLabel.setFont(new Font("Arial", Font.PLAIN, 14));
-        nameLabel.setBorder(new EmptyBorder(0, 10, 0, 0));
+    // ---------------------------------
+    // --- Table Renderers and Editors ---
+    // ---------------------------------
+
+    // Rupee amounts, centred; subtotals in the bold accent colour
+    private final class MoneyRenderer extends DefaultTableCellRenderer {
+        MoneyRenderer(boolean emphasis) {
+            setHorizontalAlignment(SwingConstants.CENTER);
+            if (emphasis) {
+                setFont(new Font("Arial", Font.BOLD, 14));
+                setForeground(new Color(255, 69, 0));
+            }
+        }
 
-        JLabel priceLabel = new JLabel(df.format(price), SwingConstants.CENTER);
-        priceLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+        @Override
+        protected void setValue(Object value) {
+            setText(value instanceof Double ? df.format(value) : "");
+        }
 
-        JLabel qtyLabel = new JLabel(String.valueOf(quantity), SwingConstants.CENTER);
-        qtyLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            Font font = getFont();
+            Color foreground = getForeground();
+            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            setFont(font); // The default renderer resets these to the table's
+            setForeground(foreground);
+            return this;
+        }
+    }
 
-        JLabel subtotalLabel = new JLabel(df.format(subtotal), SwingConstants.CENTER);
-        subtotalLabel.setFont(new Font("Arial", Font.BOLD, 14));
-        subtotalLabel.setForeground(new Color(255, 69, 0));
+    // One spinner shared by every row; it only exists while a quantity is being edited
+    private final class QuantityCellEditor extends AbstractCellEditor implements TableCellEditor {
+        private final SpinnerNumberModel model = new SpinnerNumberModel(1, 1, CartBuffer.MAX_QUANTITY, 1);
+        private final JSpinner spinner = new JSpinner(model);
+        private CartModel.Line line; // Null while not editing
+
+        QuantityCellEditor() {
+            spinner.setFont(new Font("Arial", Font.PLAIN, 14));
+            // Arrow clicks apply at once, so the subtotal and total follow while the spinner is open
+            spinner.addChangeListener(e -> {
+                if (line != null) {
+                    changeQuantity(line, (Integer) spinner.getValue());
+                }
+            });
+        }
 
-        JButton removeBtn = new JButton("Remove");
-        removeBtn.setBackground(new Color(255, 100, 100));
-        removeBtn.setForeground(Color.WHITE);
-        removeBtn.setFocusPainted(false);
-        removeBtn.addActionListener(e -> removeItem(cartItemId));
+        @Override
+        public Component getTableCellEditorComponent(JTable table, Object value, boolean isSelected, int row, int column) {
+            line = null; // Setting the start value is not an edit
+            // Lines saved before the cap may hold more; they can still be lowered
+            model.setMaximum(Math.max(CartBuffer.MAX_QUANTITY, (Integer) value));
+            spinner.setValue(value);
+            line = tableModel.getLine(row);
+            return spinner;
+        }
 
-        JPanel actionPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
-        actionPanel.setBackground(Color.WHITE);
-        actionPanel.add(removeBtn);
+        @Override
+        public Object getCellEditorValue() {
+            return spinner.getValue();
+        }
 
-        row.add(nameLabel);
-        row.add(priceLabel);
-        row.add(qtyLabel);
-        row.add(subtotalLabel);
-        row.add(actionPanel);
+        @Override
+        public boolean stopCellEditing() {
+            try {
+                spinner.commitEdit(); // Take a typed value as well as arrow clicks
+            } catch (java.text.ParseException ex) {
+                return false;
+            }
+            line = null;
+            return super.stopCellEditing();
+        }
 
-        return row;
+        @Override
+        public void cancelCellEditing() {
+            line = null;
+            super.cancelCellEditing();
+        }
     }
 
-    private void removeItem(int cartItemId) {
-        int confirm = JOptionPane.showConfirmDialog(this,
-            "Are you sure you want to remove this item from your cart?",
-            "Confirm Removal",
-            JOptionPane.YES_NO_OPTION);
+    // A painted Remove button; one component stamps every visible row
+    private static final class RemoveButtonRenderer implements TableCellRenderer {
+        private final JPanel panel = new JPanel(new GridBagLayout());
+        private final JButton button = createRemoveButton();
 
-        if (confirm == JOptionPane.YES_OPTION) {
-            String sql = "DELETE FROM Cart WHERE cart_item_id = ?";
-            try (Connection conn = DBConnection.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
+        RemoveButtonRenderer() {
+            panel.setBackground(Color.WHITE);
+            panel.add(button);
+        }
 
-                ps.setInt(1, cartItemId);
-                int rowsAffected = ps.executeUpdate();
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            return panel;
+        }
+    }
 
-                if (rowsAffected > 0) {
-                    JOptionPane.showMessageDialog(this, "Item successfully removed.", "Removed", JOptionPane.INFORMATION_MESSAGE);
-                    loadCartItems();
-                }
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(this,
-                    "Error removing item: " + ex.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-                ex.printStackTrace();
-            }
+    // The live Remove button for the row being clicked
+    private final class RemoveButtonEditor extends AbstractCellEditor implements TableCellEditor {
+        private final JPanel panel = new JPanel(new GridBagLayout());
+        private final JButton button = createRemoveButton();
+        private CartModel.Line line;
+
+        RemoveButtonEditor() {
+            panel.setBackground(Color.WHITE);
+            panel.add(button);
+            button.addActionListener(e -> {
+                CartModel.Line clicked = line;
+                stopCellEditing();
+                // After editing has ended, so the row can be deleted from the model
+                SwingUtilities.invokeLater(() -> removeItem(clicked));
+            });
         }
+
+        @Override
+        public Component getTableCellEditorComponent(JTable table, Object value, boolean isSelected, int row, int column) {
+            line = (CartModel.Line) value;
+            return panel;
+        }
+
+        @Override
+        public Object getCellEditorValue() {
+            return line;
+        }
+    }
+
+    private static JButton createRemoveButton() {
+        JButton removeBtn = new JButton("Remove");
+        removeBtn.setBackground(new Color(255, 100, 100));
+        removeBtn.setForeground(Color.WHITE);
+        removeBtn.setFocusPainted(false);
+        return removeBtn;
     }
 }
@@ -2,29 +2,69 @@
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
+import java.awt.event.ActionEvent;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyEvent;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @SuppressWarnings("serial")
-public class homePage extends JFrame {
+public class homePage extends JPanel implements StorePage {
 
+    // Products fetched per shelf request (keyset pages); a multiple of the usual column counts
+    private static final int PAGE_SIZE = 24;
+    // Infinite scroll stops here so the shelves below stay reachable; "Show all" lists the rest
+    private static final int MAX_SHELF_PRODUCTS = 4 * PAGE_SIZE;
+    private static final int SEARCH_DELAY_MILLIS = 150; // Wait for a pause in typing
+    private static final int MAX_SEARCH_RESULTS = 200;
+    private static final int BESTSELLERS_PER_SHELF = 5;
+
+    private final StoreWindow window;
     private final String username;
+    private long loadedAtMillis = 0; // When the first pages were fetched, for re-entry refresh
+    // Paging state of each shelf, keyed by category, filled once the first pages have loaded
+    private final Map<String, Shelf> shelves = new LinkedHashMap<>();
+
+    // --- Search ---
+    private final CardLayout centerCards = new CardLayout();
+    private final JPanel centerPanel = new JPanel(centerCards);
+    private final JTextField searchField = new JTextField(28);
+    private final JLabel resultsLabel = new JLabel();
+    private final VirtualProductGrid resultsGrid = new VirtualProductGrid(this::openProduct);
+    private final Timer searchTimer = new Timer(SEARCH_DELAY_MILLIS, e -> runSearch());
 
-    public homePage(String username) {
-        this.username = username;
+    // --- Filters ---
+    private final FacetIndex.Filter filter = new FacetIndex.Filter();
+    private final JPanel categoryBoxes = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+    private final Map<String, JCheckBox> categoryChecks = new LinkedHashMap<>();
+    private final Map<FacetIndex.PriceBand, JCheckBox> priceChecks = new LinkedHashMap<>();
+    private final JCheckBox inStockCheck = new JCheckBox("In stock only");
+    private boolean filtersEnabled = false; // Once the facet counts are known
 
-        setTitle("SareeStore - Home");
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setExtendedState(JFrame.MAXIMIZED_BOTH);
-        getContentPane().setBackground(Color.WHITE);
+    public homePage(StoreWindow window) {
+        this.window = window;
+        this.username = window.getUsername();
+
+        setBackground(Color.WHITE);
         setLayout(new BorderLayout());
 
-        JPanel topBar = createTopBar();
-        add(topBar, BorderLayout.NORTH);
+        JPanel header = new JPanel();
+        header.setLayout(new BoxLayout(header, BoxLayout.Y_AXIS));
+        header.setBackground(Color.WHITE);
+        header.add(createTopBar());
+        header.add(createFilterBar());
+        add(header, BorderLayout.NORTH);
 
         JPanel mainPanel = new JPanel();
         mainPanel.setBackground(Color.WHITE);
@@ -38,17 +78,38 @@ public class homePage extends JFrame {
         mainPanel.add(welcomeLabel);
         mainPanel.add(Box.createVerticalStrut(20));
 
-        mainPanel.add(createCategoryPanel("New Collection", getProductsByCategory("New Collection")));
-        mainPanel.add(createCategoryPanel("Cotton Sarees", getProductsByCategory("Cotton")));
-        mainPanel.add(createCategoryPanel("Silk Sarees", getProductsByCategory("Silk")));
-        mainPanel.add(createCategoryPanel("Banarasi Sarees", getProductsByCategory("Banarasi")));
+        // Each shelf shows a placeholder until the catalog arrives off the EDT
+        for (String category : CatalogSnapshot.HOME_SHELVES) {
+            mainPanel.add(createCategoryPanel(category));
+        }
+        loadCatalog();
+        loadBestsellers();
 
         JScrollPane scrollPane = new JScrollPane(mainPanel);
         scrollPane.setBorder(null);
         scrollPane.getVerticalScrollBar().setUnitIncrement(16);
-        add(scrollPane, BorderLayout.CENTER);
 
-        setVisible(true);
+        // Shelves normally; results replace them while there is search text or a filter
+        centerPanel.add(scrollPane, "shelves");
+        centerPanel.add(createResultsPanel(), "results");
+        add(centerPanel, BorderLayout.CENTER);
+    }
+
+    @Override
+    public String getPageTitle() { return "SareeStore - Home"; }
+
+    /** Shelves are kept while they are fresh; after the catalog TTL they are reloaded. */
+    @Override
+    public void onPageShown() {
+        if (loadedAtMillis > 0 && System.currentTimeMillis() - loadedAtMillis > CatalogCache.getTtlMillis()) {
+            loadCatalog();
+        }
+        // Admin edits may have moved products between facets since the last visit
+        if (FacetIndex.getIfReady() != null) {
+            runSearch();
+        }
+        // Orders placed since the last visit; served from precomputed rankings
+        loadBestsellers();
     }
 
     private JPanel createTopBar() {
@@ -60,6 +121,7 @@ public class homePage extends JFrame {
         logo.setFont(new Font("Serif", Font.BOLD, 30));
         logo.setForeground(new Color(255, 105, 180));
         topBar.add(logo, BorderLayout.WEST);
+        topBar.add(createSearchBox(), BorderLayout.CENTER);
 
         JPanel navButtons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 25, 5));
         navButtons.setBackground(Color.WHITE);
@@ -77,16 +139,13 @@ public class homePage extends JFrame {
                 switch (name) {
                     case "Logout":
                         // new ui(); // Redirects to Login/UI
-                        dispose();
+                        window.logout();
                         break;
                     case "Cart":
-                        new cartpage(username); 
-                        dispose(); 
+                        window.showCart();
                         break;
                     case "Profile":
-                        // ⭐️ FIX: Un-commented this line to open the profile page
-                        new AccountPage(username); 
-                        dispose(); 
+                        window.showAccount();
                         break;
                     case "Home":
                         break;
@@ -97,49 +156,313 @@ public class homePage extends JFrame {
         return topBar;
     }
 
-    private List<Product> getProductsByCategory(String category) {
-        List<Product> list = new ArrayList<>();
-        
-        // --- Placeholder Data used for demonstration (Adjusted to use available images) ---
-        if (category.equals("New Collection")) {
-            list.add(new Product(101, "Royal Blue Banarasi Silk", 5499.00, category, "images/saree1.jpg"));
-            list.add(new Product(102, "Blue Abstract Georgette", 2899.50, category, "images/saree4.jpg"));
-        } else if (category.equals("Cotton")) {
-            list.add(new Product(201, "Summer Floral Cotton Print", 1950.00, category, "images/saree2.jpg"));
-            list.add(new Product(202, "Linen Cotton Casual White", 1200.00, category, "images/saree3.jpg"));
-        } else if (category.equals("Silk")) {
-            // Reusing an image
-            list.add(new Product(301, "Kanjeevaram Wedding Silk", 8500.00, category, "images/saree5.jpg"));
-        } else if (category.equals("Banarasi")) {
-            // Reusing an image
-            list.add(new Product(401, "Classic Maroon Banarasi", 7200.00, category, "images/saree6.jpg"));
+    // ---------------------------------
+    // --- Search ---
+    // ---------------------------------
+
+    private JPanel createSearchBox() {
+        JPanel box = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 5));
+        box.setBackground(Color.WHITE);
+
+        searchField.setFont(new Font("Arial", Font.PLAIN, 16));
+        searchField.setToolTipText("Search sarees by name, category or description");
+        searchField.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(new Color(200, 200, 200)), new EmptyBorder(6, 10, 6, 10)));
+
+        // Debounced: a query runs once typing pauses, not on every keystroke
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { searchTimer.restart(); }
+            @Override public void removeUpdate(DocumentEvent e) { searchTimer.restart(); }
+            @Override public void changedUpdate(DocumentEvent e) { searchTimer.restart(); }
+        });
+        // Start building the index as soon as the user heads for the search box
+        searchField.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusGained(FocusEvent e) {
+                SearchIndex.getAsync();
+            }
+        });
+        searchField.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "clearSearch");
+        searchField.getActionMap().put("clearSearch", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                searchField.setText("");
+            }
+        });
+
+        JLabel searchLabel = new JLabel("Search:");
+        searchLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        box.add(searchLabel);
+        box.add(searchField);
+        return box;
+    }
+
+    private JPanel createResultsPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBackground(Color.WHITE);
+        panel.setBorder(new EmptyBorder(20, 50, 50, 50));
+
+        resultsLabel.setFont(new Font("Arial", Font.BOLD, 22));
+        resultsLabel.setForeground(new Color(140, 40, 80));
+        resultsLabel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        panel.add(resultsLabel, BorderLayout.NORTH);
+
+        JPanel gridHolder = new JPanel(new BorderLayout());
+        gridHolder.setBackground(Color.WHITE);
+        gridHolder.add(resultsGrid, BorderLayout.CENTER);
+
+        JScrollPane scrollPane = new JScrollPane(gridHolder);
+        scrollPane.setBorder(null);
+        scrollPane.getVerticalScrollBar().setUnitIncrement(16);
+        panel.add(scrollPane, BorderLayout.CENTER);
+        return panel;
+    }
+
+    /**
+     * Runs on the EDT after typing pauses or a filter click; searches and facet queries take a
+     * few ms, so no worker is needed.
+     */
+    private void runSearch() {
+        String query = searchField.getText().trim();
+        FacetIndex facets = FacetIndex.getIfReady();
+        FacetIndex.Result facetResult = facets != null ? facets.query(filter) : null;
+        if (facetResult != null) {
+            updateFilterBar(facetResult);
         }
-        
-        /* * Uncomment and use this section when your database is fully populated 
-         * with a 'Products' table.
-        String sql = "SELECT product_id, name, price, category, image_path FROM Products WHERE category = ?";
-        try (Connection conn = DBConnection.getConnection();
-              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, category);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                Product p = new Product(
-                    rs.getInt("product_id"),
-                    rs.getString("name"),
-                    rs.getDouble("price"),
-                    rs.getString("category"),
-                    rs.getString("image_path")
-                );
-                list.add(p);
+
+        if (query.isEmpty() && filter.isEmpty()) {
+            centerCards.show(centerPanel, "shelves");
+            return;
+        }
+        centerCards.show(centerPanel, "results");
+
+        List<Product> results;
+        if (query.isEmpty()) {
+            // Filters alone: the facet bitsets already hold the answer
+            results = facetResult.products;
+            resultsLabel.setText(results.isEmpty()
+                ? "No sarees match these filters"
+                : results.size() + " sarees match these filters");
+        } else {
+            SearchIndex index = SearchIndex.getIfReady();
+            if (index == null) {
+                resultsLabel.setText("Preparing search...");
+                resultsGrid.setProducts(Collections.emptyList());
+                AsyncDataAccess.onEdt(SearchIndex.getAsync(),
+                    ready -> runSearch(),
+                    error -> resultsLabel.setText("Search is unavailable: " + error.getMessage()));
+                return;
+            }
+            // Filters narrow the matches before the limit, not the first page of them after it
+            BitSet allowedIds = facets != null && !filter.isEmpty() ? facets.matchingIds(filter) : null;
+            results = allowedIds != null
+                ? index.search(query, MAX_SEARCH_RESULTS, allowedIds::get)
+                : index.search(query, MAX_SEARCH_RESULTS);
+            resultsLabel.setText(results.isEmpty()
+                ? "No sarees match \"" + query + "\""
+                : results.size() + (results.size() == MAX_SEARCH_RESULTS ? "+" : "") + " results for \"" + query + "\"");
+        }
+        resultsGrid.setProducts(results);
+        resultsGrid.scrollRectToVisible(new Rectangle(0, 0, 1, 1)); // New results start at the top
+    }
+
+    // ---------------------------------
+    // --- Filters ---
+    // ---------------------------------
+
+    private JPanel createFilterBar() {
+        JPanel bar = new JPanel(new FlowLayout(FlowLayout.LEFT, 12, 5));
+        bar.setBackground(Color.WHITE);
+        bar.setBorder(new EmptyBorder(0, 45, 5, 30));
+
+        bar.add(filterHeading("Category:"));
+        categoryBoxes.setBackground(Color.WHITE);
+        bar.add(categoryBoxes);
+
+        bar.add(filterHeading("Price:"));
+        for (FacetIndex.PriceBand band : FacetIndex.PriceBand.values()) {
+            JCheckBox check = filterCheckBox(band.label);
+            check.addActionListener(e -> {
+                if (check.isSelected()) {
+                    filter.priceBands.add(band);
+                } else {
+                    filter.priceBands.remove(band);
+                }
+                runSearch();
+            });
+            priceChecks.put(band, check);
+            bar.add(check);
+        }
+
+        styleFilterCheckBox(inStockCheck);
+        inStockCheck.addActionListener(e -> {
+            filter.inStockOnly = inStockCheck.isSelected();
+            runSearch();
+        });
+        bar.add(inStockCheck);
+
+        JButton clearButton = new JButton("Clear filters");
+        clearButton.setFont(new Font("Arial", Font.PLAIN, 13));
+        clearButton.setFocusPainted(false);
+        clearButton.setBackground(Color.WHITE);
+        clearButton.addActionListener(e -> clearFilters());
+        bar.add(clearButton);
+
+        // Checkboxes stay disabled until the facet counts are known
+        setFiltersEnabled(false);
+        AsyncDataAccess.onEdt(FacetIndex.getAsync(),
+            facets -> {
+                setFiltersEnabled(true);
+                updateFilterBar(facets.query(filter));
+            },
+            error -> System.err.println("Error building filters: " + error.getMessage()));
+        return bar;
+    }
+
+    /** Shows the current count next to every facet value; adds checkboxes for new categories. */
+    private void updateFilterBar(FacetIndex.Result result) {
+        if (!categoryChecks.keySet().equals(result.categoryCounts.keySet())) {
+            categoryBoxes.removeAll();
+            categoryChecks.clear();
+            for (String category : result.categoryCounts.keySet()) {
+                JCheckBox check = filterCheckBox(category);
+                check.setSelected(filter.categories.contains(category));
+                check.setEnabled(filtersEnabled);
+                check.addActionListener(e -> {
+                    if (check.isSelected()) {
+                        filter.categories.add(category);
+                    } else {
+                        filter.categories.remove(category);
+                    }
+                    runSearch();
+                });
+                categoryChecks.put(category, check);
+                categoryBoxes.add(check);
             }
-        } catch (SQLException ex) {
-              System.err.println("Error fetching products: " + ex.getMessage());
+            filter.categories.retainAll(categoryChecks.keySet()); // Drop categories that no longer exist
+            categoryBoxes.revalidate();
+            categoryBoxes.repaint();
+        }
+
+        for (Map.Entry<String, JCheckBox> entry : categoryChecks.entrySet()) {
+            entry.getValue().setText(entry.getKey() + " (" + result.categoryCounts.get(entry.getKey()) + ")");
+        }
+        for (Map.Entry<FacetIndex.PriceBand, JCheckBox> entry : priceChecks.entrySet()) {
+            entry.getValue().setText(entry.getKey().label + " (" + result.priceBandCounts.get(entry.getKey()) + ")");
         }
-        */
-        return list;
+        inStockCheck.setText("In stock only (" + result.inStockCount + ")");
     }
 
-    private JPanel createCategoryPanel(String title, List<Product> products) {
+    private void clearFilters() {
+        filter.categories.clear();
+        filter.priceBands.clear();
+        filter.inStockOnly = false;
+        for (JCheckBox check : categoryChecks.values()) {
+            check.setSelected(false);
+        }
+        for (JCheckBox check : priceChecks.values()) {
+            check.setSelected(false);
+        }
+        inStockCheck.setSelected(false);
+        runSearch();
+    }
+
+    private void setFiltersEnabled(boolean enabled) {
+        filtersEnabled = enabled;
+        for (JCheckBox check : categoryChecks.values()) {
+            check.setEnabled(enabled);
+        }
+        for (JCheckBox check : priceChecks.values()) {
+            check.setEnabled(enabled);
+        }
+        inStockCheck.setEnabled(enabled);
+    }
+
+    private static JLabel filterHeading(String text) {
+        JLabel label = new JLabel(text);
+        label.setFont(new Font("Arial", Font.BOLD, 14));
+        label.setForeground(new Color(140, 40, 80));
+        return label;
+    }
+
+    private static JCheckBox filterCheckBox(String text) {
+        JCheckBox check = new JCheckBox(text);
+        styleFilterCheckBox(check);
+        return check;
+    }
+
+    private static void styleFilterCheckBox(JCheckBox check) {
+        check.setFont(new Font("Arial", Font.PLAIN, 13));
+        check.setBackground(Color.WHITE);
+        check.setFocusPainted(false);
+    }
+
+    /** Loads the first page of every shelf (one query on a cache miss, none on a hit). */
+    private void loadCatalog() {
+        List<String> categories = new ArrayList<>(shelves.keySet());
+        loadedAtMillis = System.currentTimeMillis();
+        AsyncDataAccess.onEdt(AsyncDataAccess.call(() -> CatalogCache.getFirstPages(categories, PAGE_SIZE)),
+            firstPages -> {
+                for (Shelf shelf : shelves.values()) {
+                    shelf.reset();
+                    fillCardsPanel(shelf, firstPages.getOrDefault(shelf.title, Collections.emptyList()));
+                }
+            },
+            error -> {
+                System.err.println("Error fetching products: " + error.getMessage());
+                for (Shelf shelf : shelves.values()) {
+                    shelf.reset();
+                    fillCardsPanel(shelf, Collections.emptyList());
+                }
+            });
+    }
+
+    /** Fills each shelf's Bestsellers row; after the first load this is a lookup in cached rankings. */
+    private void loadBestsellers() {
+        List<String> categories = new ArrayList<>(shelves.keySet());
+        AsyncDataAccess.onEdt(BestsellerTracker.getAsync().thenCombine(CatalogCache.getAsync(), (tracker, catalog) -> {
+                Map<String, List<Product>> tops = new LinkedHashMap<>();
+                for (String category : categories) {
+                    tops.put(category, tracker.top(category, BESTSELLERS_PER_SHELF, catalog));
+                }
+                return tops;
+            }),
+            tops -> {
+                for (Shelf shelf : shelves.values()) {
+                    shelf.showBestsellers(tops.getOrDefault(shelf.title, Collections.emptyList()), this::openProduct);
+                }
+            },
+            error -> System.err.println("Error loading bestsellers: " + error.getMessage()));
+    }
+
+    /** Fetches the page after the shelf's last product; called as the user scrolls near its end. */
+    private void loadNextPage(Shelf shelf) {
+        if (shelf.loading || shelf.exhausted || shelf.full) {
+            return;
+        }
+        shelf.loading = true;
+        int afterId = shelf.lastId;
+        VirtualProductGrid grid = shelf.grid;
+        AsyncDataAccess.onEdt(AsyncDataAccess.call(() -> CatalogCache.getShelfPage(shelf.title, afterId, PAGE_SIZE)),
+            page -> {
+                if (shelf.grid != grid) {
+                    return; // The shelf was reloaded meanwhile
+                }
+                shelf.loading = false;
+                shelf.pageLoaded(page);
+                shelf.grid.appendProducts(page);
+            },
+            error -> {
+                // Leave the shelf as is; scrolling near the end again retries
+                if (shelf.grid == grid) {
+                    shelf.loading = false;
+                }
+                System.err.println("Error fetching more " + shelf.title + ": " + error.getMessage());
+            });
+    }
+
+    private JPanel createCategoryPanel(String title) {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBackground(Color.WHITE);
 
@@ -147,21 +470,53 @@ public class homePage extends JFrame {
         titleLabel.setFont(new Font("Arial", Font.BOLD, 24));
         titleLabel.setForeground(new Color(140, 40, 80));
         titleLabel.setBorder(new EmptyBorder(10, 10, 20, 10));
-        panel.add(titleLabel, BorderLayout.NORTH);
+
+        // Bestsellers of the last week sit between the title and the full shelf
+        JPanel bestsellersPanel = new JPanel(new BorderLayout());
+        bestsellersPanel.setBackground(Color.WHITE);
+        JLabel bestsellersLabel = new JLabel("Bestsellers this week");
+        bestsellersLabel.setFont(new Font("Arial", Font.BOLD, 18));
+        bestsellersLabel.setForeground(new Color(255, 69, 0));
+        bestsellersLabel.setBorder(new EmptyBorder(0, 10, 0, 10));
+        bestsellersPanel.add(bestsellersLabel, BorderLayout.NORTH);
+        JPanel bestsellerCards = new JPanel(new FlowLayout(FlowLayout.LEFT, 30, 15));
+        bestsellerCards.setBackground(Color.WHITE);
+        bestsellersPanel.add(bestsellerCards, BorderLayout.CENTER);
+        bestsellersPanel.setVisible(false); // Until this category has sales in the window
+
+        JPanel header = new JPanel(new BorderLayout());
+        header.setBackground(Color.WHITE);
+        header.add(titleLabel, BorderLayout.NORTH);
+        header.add(bestsellersPanel, BorderLayout.CENTER);
+        panel.add(header, BorderLayout.NORTH);
 
         JPanel cardsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 30, 30));
         cardsPanel.setBackground(Color.WHITE);
 
-        if (products.isEmpty()) {
-            cardsPanel.add(new JLabel("No " + title + " available.", SwingConstants.CENTER));
-        } else {
-            for (Product p : products) {
-                cardsPanel.add(createSareeCard(p));
-            }
-        }
+        JLabel loadingLabel = new JLabel("Loading " + title + "...", SwingConstants.CENTER);
+        loadingLabel.setFont(new Font("Arial", Font.ITALIC, 16));
+        loadingLabel.setForeground(Color.GRAY);
+        cardsPanel.add(loadingLabel);
         
         panel.add(cardsPanel, BorderLayout.CENTER);
 
+        JButton showAllButton = new JButton("Show all " + title);
+        showAllButton.setFont(new Font("Arial", Font.BOLD, 14));
+        showAllButton.setFocusPainted(false);
+        showAllButton.setBackground(Color.WHITE);
+        showAllButton.setVisible(false); // Until the shelf reaches MAX_SHELF_PRODUCTS
+        JPanel showAllPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        showAllPanel.setBackground(Color.WHITE);
+        showAllPanel.add(showAllButton);
+        panel.add(showAllPanel, BorderLayout.SOUTH);
+
+        Shelf shelf = new Shelf(title, cardsPanel);
+        shelf.bestsellersPanel = bestsellersPanel;
+        shelf.bestsellerCards = bestsellerCards;
+        shelf.showAllButton = showAllButton;
+        showAllButton.addActionListener(e -> showAll(shelf));
+        shelves.put(title, shelf);
+
         JPanel container = new JPanel();
         container.setLayout(new BoxLayout(container, BoxLayout.Y_AXIS));
         container.add(panel);
@@ -170,54 +525,108 @@ public class homePage extends JFrame {
         return container;
     }
 
-    private JPanel createSareeCard(Product product) {
-        JPanel card = new JPanel(new BorderLayout());
-        card.setBackground(Color.WHITE);
-        card.setBorder(BorderFactory.createLineBorder(new Color(220, 220, 220), 2));
-        card.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
-        card.setPreferredSize(new Dimension(270, 350)); 
-
-        // Image loading block
-        JLabel imageLabel;
-        try {
-            ImageIcon icon = new ImageIcon(product.getImagePath());
-            Image img = icon.getImage().getScaledInstance(250, 250, Image.SCALE_SMOOTH);
-            icon = new ImageIcon(img);
-            imageLabel = new JLabel(icon);
-        } catch (Exception e) {
-            System.err.println("Error loading image for " + product.getName() + ": " + e.getMessage());
-            imageLabel = new JLabel("[Image Error]", SwingConstants.CENTER);
-            imageLabel.setPreferredSize(new Dimension(250, 250));
+    /** Runs on the EDT once a shelf's products have been loaded. */
+    private void fillCardsPanel(Shelf shelf, List<Product> firstPage) {
+        JPanel cardsPanel = shelf.cardsPanel;
+        cardsPanel.removeAll();
+        if (firstPage.isEmpty()) {
+            cardsPanel.setLayout(new FlowLayout(FlowLayout.LEFT, 30, 30));
+            cardsPanel.add(new JLabel("No " + shelf.title + " available.", SwingConstants.CENTER));
+        } else {
+            // Only the cards inside the viewport are built; further pages arrive as the user scrolls
+            shelf.pageLoaded(firstPage);
+            shelf.grid = new VirtualProductGrid(this::openProduct);
+            shelf.grid.setProducts(firstPage);
+            shelf.grid.setNearEndListener(() -> loadNextPage(shelf));
+            cardsPanel.setLayout(new BorderLayout());
+            cardsPanel.add(shelf.grid, BorderLayout.CENTER);
         }
-        
-        imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
-        card.add(imageLabel, BorderLayout.CENTER);
+        cardsPanel.revalidate();
+        cardsPanel.repaint();
+    }
 
-        // Details Panel for Name and Price
-        JPanel detailsPanel = new JPanel(new BorderLayout());
-        detailsPanel.setBorder(new EmptyBorder(5, 10, 5, 10));
-        detailsPanel.setBackground(Color.WHITE);
-        
-        JLabel nameLabel = new JLabel(product.getName(), SwingConstants.LEFT);
-        nameLabel.setFont(new Font("Arial", Font.BOLD, 14));
-        nameLabel.setForeground(new Color(65, 105, 225));
-        detailsPanel.add(nameLabel, BorderLayout.NORTH);
-        
-        JLabel priceLabel = new JLabel("₹" + String.format("%.2f", product.getPrice()), SwingConstants.RIGHT);
-        priceLabel.setFont(new Font("Arial", Font.BOLD, 16));
-        priceLabel.setForeground(new Color(255, 69, 0));
-        detailsPanel.add(priceLabel, BorderLayout.SOUTH);
-        
-        card.add(detailsPanel, BorderLayout.SOUTH);
-
-        card.addMouseListener(new MouseAdapter() {
-            public void mouseClicked(MouseEvent e) {
-                // Correctly navigate to the ProductPage
-                // Assuming the ProductPage class is available.
-                new ProductPage(product, username); 
-                dispose();
+    /** Lists every product of the shelf's category in the results view (filter on that category alone). */
+    private void showAll(Shelf shelf) {
+        AsyncDataAccess.onEdt(FacetIndex.getAsync(),
+            facets -> {
+                updateFilterBar(facets.query(filter));
+                String category = shelf.title;
+                for (String name : categoryChecks.keySet()) {
+                    if (CatalogSnapshot.categoryKey(name).equals(CatalogSnapshot.categoryKey(shelf.title))) {
+                        category = name;
+                    }
+                }
+                filter.categories.clear();
+                filter.categories.add(category);
+                for (Map.Entry<String, JCheckBox> entry : categoryChecks.entrySet()) {
+                    entry.getValue().setSelected(entry.getKey().equals(category));
+                }
+                runSearch();
+            },
+            error -> JOptionPane.showMessageDialog(this, "Could not load " + shelf.title + ": " + error.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private void openProduct(Product product) {
+        window.showProduct(product);
+    }
+
+    // Keyset paging state of one shelf; only touched on the EDT
+    private static final class Shelf {
+        final String title;
+        final JPanel cardsPanel;
+        VirtualProductGrid grid;
+        int lastId = 0;
+        boolean loading = false;
+        boolean exhausted = false;
+        boolean full = false; // Reached MAX_SHELF_PRODUCTS; the rest is behind "Show all"
+        int count = 0;
+        JButton showAllButton;
+        JPanel bestsellersPanel;
+        JPanel bestsellerCards;
+        int[] bestsellerIds = new int[0];
+
+        Shelf(String title, JPanel cardsPanel) {
+            this.title = title;
+            this.cardsPanel = cardsPanel;
+        }
+
+        void reset() {
+            grid = null;
+            lastId = 0;
+            loading = false;
+            exhausted = false;
+            full = false;
+            count = 0;
+            showAllButton.setVisible(false);
+        }
+
+        /** Rebuilds the Bestsellers row only when its products or their order changed. */
+        void showBestsellers(List<Product> top, Consumer<Product> onOpen) {
+            int[] ids = top.stream().mapToInt(Product::getId).toArray();
+            if (Arrays.equals(ids, bestsellerIds)) {
+                return;
             }
-        });
-        return card;
+            bestsellerIds = ids;
+            bestsellerCards.removeAll();
+            for (Product p : top) {
+                SareeCard card = new SareeCard(onOpen);
+                card.bind(p);
+                bestsellerCards.add(card);
+            }
+            bestsellersPanel.setVisible(!top.isEmpty());
+            bestsellersPanel.revalidate();
+            bestsellersPanel.repaint();
+        }
+
+        void pageLoaded(List<Product> page) {
+            if (!page.isEmpty()) {
+                lastId = page.get(page.size() - 1).getId();
+            }
+            exhausted = page.size() < PAGE_SIZE;
+            count += page.size();
+            full = count >= MAX_SHELF_PRODUCTS;
+            showAllButton.setVisible(full && !exhausted);
+        }
     }
 }
@@ -0,0 +1,43 @@
+-- Schema changes required by the application, applied in order on top of the
+-- existing sareestore database (users, Products, Cart, orders, orderitems, feedback).
+
+-- Home shelves are loaded with WHERE category IN (...) ORDER BY category, product_id
+-- and paged with WHERE category = ? AND product_id > ? ORDER BY product_id
+CREATE INDEX idx_products_category ON Products (category, product_id);
+
+-- Content key of the pre-scaled renditions in the thumbnail store (ThumbnailStore);
+-- NULL until generated at upload or by ThumbnailBackfill
+ALTER TABLE Products ADD COLUMN thumbnail_key CHAR(64) NULL;
+
+-- One open cart line per user and product, so ProductPage can add to the cart with a
+-- single INSERT ... ON DUPLICATE KEY UPDATE. open_cart is 1 while the line is in the
+-- open cart and NULL once it belongs to an order; NULLs never collide in a unique key,
+-- so ordered lines are unaffected.
+-- First merge duplicate open lines left by the old SELECT-then-INSERT race.
+UPDATE Cart c
+JOIN (SELECT username, product_id, MIN(cart_item_id) AS keep_id, SUM(quantity) AS total
+      FROM Cart WHERE order_id IS NULL
+      GROUP BY username, product_id HAVING COUNT(*) > 1) d ON c.cart_item_id = d.keep_id
+SET c.quantity = d.total;
+
+DELETE c FROM Cart c
+JOIN (SELECT username, product_id, MIN(cart_item_id) AS keep_id
+      FROM Cart WHERE order_id IS NULL
+      GROUP BY username, product_id HAVING COUNT(*) > 1) d
+  ON c.username = d.username AND c.product_id = d.product_id
+ AND c.order_id IS NULL AND c.cart_item_id <> d.keep_id;
+
+ALTER TABLE Cart
+  ADD COLUMN open_cart TINYINT AS (IF(order_id IS NULL, 1, NULL)) STORED,
+  ADD UNIQUE INDEX uq_cart_open_line (username, product_id, open_cart);
+
+-- Idempotency key of the checkout attempt that placed the order (PaymentPage,
+-- CheckoutRegistry). A retry of an attempt that already committed hits the unique key
+-- and gets the original order back instead of a duplicate. NULL for older orders.
+ALTER TABLE orders
+  ADD COLUMN idempotency_key CHAR(36) NULL,
+  ADD UNIQUE INDEX uq_orders_idempotency_key (idempotency_key);
+
+-- Checkout reserves stock with a conditional decrement (CheckoutPipeline), so stock can
+-- never go negative; the constraint backs that up for any other writer (MySQL 8.0.16+).
+ALTER TABLE Products ADD CONSTRAINT chk_products_stock CHECK (stock_quantity >= 0);
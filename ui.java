@@ -107,7 +107,7 @@ public class ui extends JFrame {
 
             if (authenticateUser(username, password)) {
                 JOptionPane.showMessageDialog(this, "Login Successful! Welcome, " + username + ".", "Success", JOptionPane.INFORMATION_MESSAGE);
-                new homePage(username);
+                StoreWindow.open(username);
                 dispose();
             } else {
                 JOptionPane.showMessageDialog(this, "Invalid Username or Password.", "Login Failed", JOptionPane.ERROR_MESSAGE);